@@ -1,6 +1,4 @@
 import uk.ac.warwick.dcs.maze.logic.IRobot;
-import java.util.List;
-import java.util.ArrayList;
 
 public class Broken {
   public void controlRobot(IRobot robot) {
@@ -14,55 +12,16 @@ public class Broken {
     byte latitude = isTargetNorth(robot);
     byte longitude = isTargetEast(robot);
 
-    //List all the options possible to move in
-    List<Integer> options = new ArrayList<> ();
+    //Mark all the options possible to move in as bits of a mask (see HeadingMask);
+    //ignoring all the headings that would lead to a collision
+    int options = 0;
+    for (int bit = 0; bit < 4; bit++)
+      if (lookHeading(robot, HeadingMask.HEADINGS[bit]) != IRobot.WALL)
+        options |= 1 << bit;
 
-    //System.out.println("-----");
-    //Remove all the headings that would lead to a collision
-    for (int heading : new int[] {IRobot.NORTH, IRobot.SOUTH, IRobot.EAST, IRobot.WEST})
-		  if (lookHeading(robot, heading) != IRobot.WALL) {
-        /*switch (heading){
-          case IRobot.NORTH: System.out.println("NORTH free");
-            break;
-          case IRobot.SOUTH: System.out.println("SOUTH free");
-            break;
-          case IRobot.EAST: System.out.println("EAST free");
-            break;
-          case IRobot.WEST: System.out.println("WEST free");
-            break;
-        }*/
-        options.add(heading);
-      }
-
-    //If north is possible and towards target, never go south
-    //If south is possible and towards target, never go north
-    //If the target is the same latitude as the robot check the longitude
-    //  If the longitude target option is possible, remove these options
-    if (latitude == 1 && options.contains(IRobot.NORTH)) {
-      options.remove((Object)IRobot.SOUTH);
-    } else if (latitude == -1 && options.contains(IRobot.SOUTH)) {
-      options.remove((Object)IRobot.NORTH);
-    } else if (((longitude == 1 && options.contains(IRobot.EAST)) ||
-              (longitude == -1 && options.contains(IRobot.WEST)))) {
-      options.remove((Object)IRobot.NORTH);
-      options.remove((Object)IRobot.SOUTH);
-    }
-
-    //If east is possible and towards target, never go west
-    //If west is possible and towards target, never go east
-    //If the target is the same longitude as the robot check the latitude
-    //  If the latitude target option is possible, remove these options
-    if (longitude == 1 && options.contains(IRobot.EAST)) {
-      options.remove((Object)IRobot.WEST);
-    } else if (longitude == -1 && options.contains(IRobot.WEST)) {
-      options.remove((Object)IRobot.EAST);
-    } else if (((latitude == 1 && options.contains(IRobot.NORTH)) ||
-              (latitude == -1 && options.contains(IRobot.SOUTH)))) {
-      options.remove((Object)IRobot.EAST);
-      options.remove((Object)IRobot.WEST);
-    }
-    //Choose a random direction from remaining list
-    return options.get((int) Math.floor(Math.random()*options.size()));
+    //Remove the options away from the target (the NORTH-SOUTH and EAST-WEST cases
+    //in HeadingMask.filter()) and choose a random direction from the ones remaining
+    return HeadingMask.choose(options, latitude, longitude, MazeRandom.nextDouble());
   }
 
   private byte isTargetNorth (IRobot robot) {
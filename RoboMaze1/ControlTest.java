@@ -0,0 +1,240 @@
+/*
+  ControlTest.java
+
+  PREAMBLE
+  Checks the heading chosen by a homing controller (Ex3, Broken) on every poll. A
+  heading is right if no other heading scores higher, where a heading towards the
+  target scores 1, any other open heading 0 and a wall -1. Each poll is one of 144
+  situations (is the target north Y/-/N, is it east Y/-/N, and a wall or not on
+  each of the 4 sides) and printResults() gives a table of which situations were
+  tested and whether the controller ever got one wrong.
+
+  The results used to be a HashMap<Integer, Integer> from a 6 digit key to a status,
+  boxing on every poll and not safe to update from more than one thread. Now each
+  situation has a pass and a fail count in a LongAdder, indexed by
+  ((((latitude*3 + longitude)*2 + wallNorth)*2 + wallSouth)*2 + wallWest)*2 + wallEast
+  with latitude and longitude from isTargetNorth()/isTargetEast() + 1. LongAdder
+  spreads the adds over its own cells when threads collide, so any number of
+  simulations running at once can call test() without races or locking, and the
+  counts are only added up when snapshot() asks for them. A situation with any fails
+  is an error, as before, and one with only passes is ok.
+
+  printResults() prints the table for everything since the last printResults() and
+  then clears the counts (like the old HashMap being made again), so with several
+  simulations at once use snapshot(false) rather than printing from each reset().
+  exportHistogram() adds counts to a histogram file, one line per tested situation:
+    ITN ITE WNORTH WSOUTH WWEST WEAST passes fails    eg. Y - N - - E 812 0
+  adding to whatever counts are already in it, so runs in different JVMs can be put
+  together. If the robomaze.controlTest property names a file, printResults() adds
+  each run to that file too. java ControlTest <file> prints the table for a file.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ControlTest {
+  public static final String PROPERTY = "robomaze.controlTest";
+  public static final int SITUATIONS = 3*3*2*2*2*2;
+
+  private static final LongAdder[] passes = new LongAdder[SITUATIONS];
+  private static final LongAdder[] fails = new LongAdder[SITUATIONS];
+
+  static {
+    for (int i = 0; i < SITUATIONS; i++) {
+      passes[i] = new LongAdder();
+      fails[i] = new LongAdder();
+    }
+  }
+
+  public static int headingLook (IRobot robot, int heading) {
+    int robotHeading = robot.getHeading();
+    if (robotHeading < IRobot.NORTH || robotHeading > IRobot.WEST)
+      return -1;
+    return robot.look((heading - robotHeading + 4) % 4 + IRobot.AHEAD);
+  }
+
+  public static byte isTargetNorth (IRobot robot) {
+    if (robot.getLocation().y < robot.getTargetLocation().y)
+      return -1;
+    if (robot.getLocation().y > robot.getTargetLocation().y)
+      return 1;
+    return 0;
+  }
+
+  public static byte isTargetEast (IRobot robot) {
+    if (robot.getLocation().x < robot.getTargetLocation().x)
+      return 1;
+    if (robot.getLocation().x > robot.getTargetLocation().x)
+      return -1;
+    return 0;
+  }
+
+  public static void test (int heading, IRobot robot) {
+    int latitude = isTargetNorth(robot);
+    int longitude = isTargetEast(robot);
+
+    //Scores by heading - NORTH, so NORTH, EAST, SOUTH, WEST
+    int[] scores = {latitude == 1 ? 1 : 0, longitude == 1 ? 1 : 0, latitude == -1 ? 1 : 0, longitude == -1 ? 1 : 0};
+    for (int i = 0; i < 4; i++)
+      if (headingLook(robot, IRobot.NORTH + i) == IRobot.WALL)
+        scores[i] = -1;
+
+    boolean correct = true;
+    int chosen = scores[heading - IRobot.NORTH];
+    for (int score : scores)
+      if (score > chosen)
+        correct = false;
+
+    int situation = situation(latitude + 1, longitude + 1, scores[0] == -1 ? 1 : 0, scores[2] == -1 ? 1 : 0, scores[3] == -1 ? 1 : 0, scores[1] == -1 ? 1 : 0);
+    (correct ? passes : fails)[situation].increment();
+  }
+
+  private static int situation (int latitude, int longitude, int wallNorth, int wallSouth, int wallWest, int wallEast) {
+    return ((((latitude*3 + longitude)*2 + wallNorth)*2 + wallSouth)*2 + wallWest)*2 + wallEast;
+  }
+
+  //The counts added up so far, passes in [0, SITUATIONS) and fails in [SITUATIONS, 2*SITUATIONS).
+  //With reset the counts are cleared as they are read.
+  public static long[] snapshot (boolean reset) {
+    long[] counts = new long[2*SITUATIONS];
+    for (int i = 0; i < SITUATIONS; i++) {
+      counts[i] = reset ? passes[i].sumThenReset() : passes[i].sum();
+      counts[SITUATIONS + i] = reset ? fails[i].sumThenReset() : fails[i].sum();
+    }
+    return counts;
+  }
+
+  //Add the counts to those in the histogram file, making it if it isnt there
+  public static synchronized void exportHistogram (File file, long[] counts) throws IOException {
+    long[] total = file.exists() ? readHistogram(file) : new long[2*SITUATIONS];
+    for (int i = 0; i < total.length; i++)
+      total[i] += counts[i];
+
+    try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+      for (int i = 0; i < SITUATIONS; i++)
+        if (total[i] + total[SITUATIONS + i] > 0)
+          out.println(String.join(" ", columns(i)) + " " + total[i] + " " + total[SITUATIONS + i]);
+    }
+  }
+
+  public static long[] readHistogram (File file) throws IOException {
+    long[] counts = new long[2*SITUATIONS];
+    try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length != 8)
+          continue;
+
+        int situation = situation(level(fields[0]), level(fields[1]), wall(fields[2]), wall(fields[3]), wall(fields[4]), wall(fields[5]));
+        counts[situation] += Long.parseLong(fields[6]);
+        counts[SITUATIONS + situation] += Long.parseLong(fields[7]);
+      }
+    }
+    return counts;
+  }
+
+  private static int level (String field) {
+    return field.equals("N") ? 0 : field.equals("-") ? 1 : 2;
+  }
+
+  private static int wall (String field) {
+    return field.equals("-") ? 0 : 1;
+  }
+
+  //The ITN to WEAST columns for a situation
+  private static String[] columns (int situation) {
+    int latitude = (situation >> 4) / 3;
+    int longitude = (situation >> 4) % 3;
+    return new String[] {
+      latitude == 0 ? "N" : latitude == 1 ? "-" : "Y",
+      longitude == 0 ? "N" : longitude == 1 ? "-" : "Y",
+      (situation & 8) == 0 ? "-" : "N",
+      (situation & 4) == 0 ? "-" : "S",
+      (situation & 2) == 0 ? "-" : "W",
+      (situation & 1) == 0 ? "-" : "E"
+    };
+  }
+
+  private static int printVal (int situation, long[] counts, boolean verbose) {
+    int status = counts[SITUATIONS + situation] > 0 ? 2 : counts[situation] > 0 ? 1 : 0;
+    if (status != 0 || verbose) {
+      String[] c = columns(situation);
+      System.out.println("|  " + c[0] + "  |  " + c[1] + "  |   " + c[2] + "    |   " + c[3] + "    |   " + c[4] + "    |   " + c[5] + "    | " +
+                         (status == 0 ? "  --  " : status == 1 ? "  ok  " : " error") + " |");
+    }
+    return status != 0 ? 1 : 0;
+  }
+
+  public static void printResults () {
+    printResults(false);
+  }
+
+  public static void printResults (boolean verbose) {
+    long[] counts = snapshot(true);
+    printTable(counts, verbose);
+
+    String name = System.getProperty(PROPERTY);
+    if (name != null) {
+      try {
+        exportHistogram(new File(name), counts);
+      } catch (IOException e) {
+        System.err.println("Control test histogram not saved: " + e.getMessage());
+      }
+    }
+  }
+
+  private static void printTable (long[] counts, boolean verbose) {
+    System.out.println();
+    System.out.println("==========================================================");
+    System.out.println("               TESTING HEADING CONTROLLER                 ");
+    System.out.println("==========================================================");
+    System.out.println("|_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/|");
+    System.out.println("|                                                        |");
+    System.out.println("| The following table contains the results of a number   |");
+    System.out.println("| of test cases that were executed during your robot's   |");
+    System.out.println("| previous run. There are 64 possible scenarios that your|");
+    System.out.println("| robot could have been tested against. It is likely     |");
+    System.out.println("| that fewer tests were actually run and to maximize the |");
+    System.out.println("| testing, the test harness should be run a number of    |");
+    System.out.println("| times on fairly large mazes.                           |");
+    System.out.println("|                                                        |");
+    System.out.println("| If the tests were successful then the status reports   |");
+    System.out.println("| OK. If a test fails then you will need to investigate  |");
+    System.out.println("| why this is the case.                                  |");
+    System.out.println("|                                                        |");
+    System.out.println("| ITN: Is Target North (Y/N or -)                        |");
+    System.out.println("| ITE: Is Target East (Y/N or -)                         |");
+    System.out.println("| WNORTH, WSOUTH, WWEST, WEAST : wall positions          |");
+    System.out.println("| STATUS: actual result compared with expected result    |");
+    System.out.println("|                                                        |");
+    System.out.println("|_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/_/|");
+    System.out.println("|                                                        |");
+    System.out.println("----------------------------------------------------------");
+    System.out.println("| ITN | ITE | WNORTH | WSOUTH | WWEST  | WEAST  | STATUS |");
+    System.out.println("----------------------------------------------------------");
+
+    int tested = 0;
+    for (int i = 0; i < SITUATIONS; i++)
+      tested += printVal(i, counts, verbose);
+
+    System.out.println("----------------------------------------------------------");
+    System.out.println("Total number of test cases tested in this run : " + tested);
+    System.out.println("==========================================================");
+  }
+
+  public static void main (String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: java ControlTest <file>");
+      return;
+    }
+
+    printTable(readHistogram(new File(args[0])), true);
+  }
+}
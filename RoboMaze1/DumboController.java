@@ -16,7 +16,7 @@ public class DumboController
 
 		// Select a random number
 
-		randno = (int) Math.round(Math.random()*3);
+		randno = (int) Math.round(MazeRandom.nextDouble()*3);
 
 		// Convert this to a direction
 
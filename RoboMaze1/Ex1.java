@@ -7,10 +7,12 @@
 	a different direction is chosen by looping back to choose a different random
 	number until a direction is chosen that is possible to move into.
 
-	The majority of the code is present to deal with logging the robots movements
-	and displaying it in a way easy to read to humans for debugging and testing
-	purposes, this has been split off into its own procedure to make the
-	functional part of the code more legible. The funcional method of the code is
+	Logging the robots movements for debugging and testing purposes has been split
+	off into its own procedure to make the functional part of the code more legible,
+	and is done by MoveLog, which prints each move as before or, with the
+	robomaze.moveLog property set, writes it to a binary file in the background.
+	The walls are looked at once at the start of each move and kept in a mask, which
+	both the direction choice and the log use. The funcional method of the code is
 	concise but not very efficient as impossible directions are often chosen even
 	after they have already been seen to be impossible and the robot often backtracks in the maze.
 */
@@ -18,14 +20,22 @@
 import uk.ac.warwick.dcs.maze.logic.IRobot;
 
 public class Ex1 {
+	private final MoveLog log = MoveLog.shared();
+
 	public void controlRobot(IRobot robot) {
 		//Deal with choosing a direction to move
 		int randno;
 		int direction;
 
+		//Look each way once, bit (direction - AHEAD) is set for each wall
+		int walls = 0;
+		for (int i = 0; i < 4; i++)
+			if (robot.look(IRobot.AHEAD + i) == IRobot.WALL)
+				walls |= 1 << i;
+
 		do {
 			// Select a random number
-			randno = (int) Math.round(Math.random()*3);
+			randno = (int) Math.round(MazeRandom.nextDouble()*3);
 
 			// Convert this to a direction
 			if (randno == 0) direction = IRobot.LEFT;
@@ -34,45 +44,15 @@ public class Ex1 {
 			else direction = IRobot.AHEAD;
 
 		//Loops if the robot is facing a wall to choose another direction instead
-		} while (robot.look(direction) == IRobot.WALL);
+		} while ((walls & (1 << (direction - IRobot.AHEAD))) != 0);
 
 		//Turn to this direction
 		robot.face(direction);
-		LogTurn(robot, direction);
+		LogTurn(direction, Integer.bitCount(walls));
 	}
 
-	//Deal with logging the movements
-	private void LogTurn (IRobot robot, int direction) {
-		int walls = 0;
-		String message = "I'm going ";
-
-		//For each of the 4 directions, if there is a wall, increment walls
-		for (int dir : new int[] {IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND, IRobot.AHEAD})
-			walls += robot.look(dir)==IRobot.WALL?1:0;
-
-		//Add the direction to the log message string
-		switch (direction){
-			case IRobot.LEFT: message += "left";
-				break;
-			case IRobot.RIGHT: 	message += "right";
-				break;
-			case IRobot.BEHIND: message += "backwards";
-				break;
-			case IRobot.AHEAD: message += "forward";
-				break;
-		}
-
-		//Add the current tiles type based on how many walls surround it
-		switch (walls){
-				case 3: message += " at a deadend";
-					break;
-				case 2: message += " down a corridor";
-					break;
-				default: message += " at a junction";
-					break;
-		}
-
-		//Print the message to the log
-		System.out.println(message);
+	//Deal with logging the movements, walls is how many walls are round the robot
+	private void LogTurn (int direction, int walls) {
+		log.record(direction, walls);
 	}
 }
@@ -66,6 +66,10 @@
 			P(1) = 25%
 			P(2) = 25%
 			P(3) = 25%
+
+	The walls are now looked at once at the start of each move into a mask (bit direction - AHEAD),
+	which the direction choice and the log both use rather than calling robot.look() again, and
+	the log is done by MoveLog (see there for writing it to a binary file instead of printing it).
 */
 
 import uk.ac.warwick.dcs.maze.logic.IRobot;
@@ -73,17 +77,25 @@ import uk.ac.warwick.dcs.maze.logic.IRobot;
 public class Ex2
 {
 
+	private final MoveLog log = MoveLog.shared();
+
 	public void controlRobot(IRobot robot) {
 		//Deal with choosing a direction to move
 		int randno;
 		int direction;
 
+		//Look each way once, bit (direction - AHEAD) is set for each wall
+		int walls = 0;
+		for (int i = 0; i < 4; i++)
+			if (robot.look(IRobot.AHEAD + i) == IRobot.WALL)
+				walls |= 1 << i;
+
 		//Check if the tile ahead is a wall OR if a new random number between [0-7] is 0
-		if (robot.look(IRobot.AHEAD) == IRobot.WALL || (int) Math.floor(Math.random()*8) == 0) {
+		if ((walls & 1) != 0 || (int) Math.floor(MazeRandom.nextDouble()*8) == 0) {
 			//Randomise the direction of the robot
 			do {
 				// Select a random number
-				randno = (int) Math.floor(Math.random()*4);
+				randno = (int) Math.floor(MazeRandom.nextDouble()*4);
 
 				// Convert this to a direction
 				if (randno == 0) direction = IRobot.LEFT;
@@ -92,48 +104,18 @@ public class Ex2
 				else direction = IRobot.AHEAD;
 
 			//Loops if the robot is facing a wall to choose another direction instead
-			} while (robot.look(direction) == IRobot.WALL);
+			} while ((walls & (1 << (direction - IRobot.AHEAD))) != 0);
 		} else
 			//Keep moving forwards
 			direction = IRobot.AHEAD;
 
 		//Turn to this direction
 		robot.face(direction);
-		LogTurn(robot, direction);
+		LogTurn(direction, Integer.bitCount(walls));
 	}
 
-	//Deal with logging the movements
-	private void LogTurn (IRobot robot, int direction) {
-		int walls = 0;
-		String message = "I'm going ";
-
-		//For each of the 4 directions, if there is a wall, increment walls
-		for (int dir : new int[] {IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND, IRobot.AHEAD})
-			walls += robot.look(dir)==IRobot.WALL?1:0;
-
-		//Add the direction to the log message string
-		switch (direction){
-				case IRobot.LEFT: message += "left";
-					break;
-				case IRobot.RIGHT: 	message += "right";
-					break;
-				case IRobot.BEHIND: message += "backwards";
-					break;
-				case IRobot.AHEAD: message += "forward";
-					break;
-			}
-
-			//Add the current tiles type based on how many walls surround it
-			switch (walls){
-					case 3: message += " at a deadend";
-						break;
-					case 2: message += " down a corridor";
-						break;
-					default: message += " at a junction";
-						break;
-			}
-
-			//Print the message to the log
-			System.out.println(message);
+	//Deal with logging the movements, walls is how many walls are round the robot
+	private void LogTurn (int direction, int walls) {
+		log.record(direction, walls);
 	}
 }
@@ -27,8 +27,9 @@
     |    |____|     |_____
     |_____________________
 
-  The method used here for headingController() uses a list of possible options
-  for the robot to choose to move in. The list is initally filled with all directions
+  The method used here for headingController() uses a mask of possible options
+  for the robot to choose to move in, one bit for each of NORTH, SOUTH, EAST and WEST
+  (see HeadingMask). The mask is initally filled with all directions
   that would not lead the robot into a wall. Then the NORTH-SOUTH case is checked
   using the latitude value returned by the isTargetNorth() function; here there are 4 cases:
     Target is north AND robot can go north
@@ -43,9 +44,11 @@
     Change nothing and leave both north and south as possible directions
       for random choosing
   A similar thing is then done with the longitude value from isTargetEast() affecting
-  the options to go east and west. Finally out of all the remaining options in the list
+  the options to go east and west. Finally out of all the remaining options in the mask
   one is randomly chosen using the even probability function from the previous iteration
-  using the options.size() as the maximum value [exclusive].
+  using the number of bits set as the maximum value [exclusive]. As there are only 16
+  masks and 3 values each for latitude and longitude, the result of all of that is
+  worked out once up front in HeadingMask, so choosing makes no Lists or Integers.
 
   To improve this iteration of the robot, it needs some way to check when it has become
   stuck in a deadend or corner of the maze, to do this we could use the IRobot.BEENBEFORE tiles
@@ -56,8 +59,6 @@
 */
 
 import uk.ac.warwick.dcs.maze.logic.IRobot;
-import java.util.List;
-import java.util.ArrayList;
 
 public class Ex3 {
   public void controlRobot(IRobot robot) {
@@ -71,43 +72,16 @@ public class Ex3 {
     byte latitude = isTargetNorth(robot);
     byte longitude = isTargetEast(robot);
 
-    //List all the options possible to move in;
+    //Mark all the options possible to move in as bits of a mask (see HeadingMask);
     //ignoring all the headings that would lead to a collision
-    List<Integer> options = new ArrayList<> ();
-    for (int heading : new int[] {IRobot.NORTH, IRobot.SOUTH, IRobot.EAST, IRobot.WEST})
-		  if (lookHeading(robot, heading) != IRobot.WALL)
-        options.add(heading);
-
-    //Consider NORTH-SOUTH cases
-    if (latitude == 1 && options.contains(IRobot.NORTH)) {
-      //If north is possible and towards target, never go south
-      options.remove((Object)IRobot.SOUTH);
-    } else if (latitude == -1 && options.contains(IRobot.SOUTH)) {
-      //If south is possible and towards target, never go north
-      options.remove((Object)IRobot.NORTH);
-    } else if ( (longitude ==  1 && options.contains(IRobot.EAST)) ||
-                (longitude == -1 && options.contains(IRobot.WEST))) {
-      //If the longitude target option is possible, remove these options as there is higher priority
-      options.remove((Object)IRobot.NORTH);
-      options.remove((Object)IRobot.SOUTH);
-    }
-
-    //Consider EAST-WEST cases
-    if (longitude == 1 && options.contains(IRobot.EAST))
-      //If east is possible and towards target, never go west
-      options.remove((Object)IRobot.WEST);
-    else if (longitude == -1 && options.contains(IRobot.WEST))
-      //If west is possible and towards target, never go east
-      options.remove((Object)IRobot.EAST);
-    else if ( (latitude ==  1 && options.contains(IRobot.NORTH)) ||
-              (latitude == -1 && options.contains(IRobot.SOUTH))) {
-      //If the latitude target option is possible, remove these options as there is higher priority
-      options.remove((Object)IRobot.EAST);
-      options.remove((Object)IRobot.WEST);
-    }
-
-    //Choose a random direction from remaining list
-    return options.get((int) Math.floor(Math.random()*options.size()));
+    int options = 0;
+    for (int bit = 0; bit < 4; bit++)
+      if (lookHeading(robot, HeadingMask.HEADINGS[bit]) != IRobot.WALL)
+        options |= 1 << bit;
+
+    //Remove the options away from the target (the NORTH-SOUTH and EAST-WEST cases
+    //in HeadingMask.filter()) and choose a random direction from the ones remaining
+    return HeadingMask.choose(options, latitude, longitude, MazeRandom.nextDouble());
   }
 
   private byte isTargetNorth (IRobot robot) {
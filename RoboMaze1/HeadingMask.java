@@ -0,0 +1,80 @@
+/*
+  HeadingMask.java
+
+  PREAMBLE
+  The heading choice used by the homing controllers (Ex3 and Broken) done on a
+  4 bit mask instead of a List<Integer>. The options are bits in the same order the
+  list was filled in, NORTH, SOUTH, EAST, WEST, so the k-th remaining option is
+  the k-th set bit and picking floor(random * count) gives the same heading the
+  list would have for the same random number.
+
+  filter() is the latitude/longitude priority from Ex3 on the mask. It is worked
+  out for every mask and every latitude and longitude (-1, 0, 1) once when the
+  class loads, so choose() is just three table lookups and makes no objects.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+
+public class HeadingMask {
+  public static final int NORTH = 1;
+  public static final int SOUTH = 2;
+  public static final int EAST = 4;
+  public static final int WEST = 8;
+
+  //Headings in the order of the bits
+  public static final int[] HEADINGS = {IRobot.NORTH, IRobot.SOUTH, IRobot.EAST, IRobot.WEST};
+
+  //FILTERED[(mask*3 + latitude+1)*3 + longitude+1] is filter(mask, latitude, longitude)
+  private static final int[] FILTERED = new int[16*3*3];
+  //BY_RANK[mask][k] is the heading of the k-th set bit of mask
+  private static final int[][] BY_RANK = new int[16][];
+
+  static {
+    for (int mask = 0; mask < 16; mask++) {
+      for (int latitude = -1; latitude <= 1; latitude++)
+        for (int longitude = -1; longitude <= 1; longitude++)
+          FILTERED[(mask*3 + latitude+1)*3 + longitude+1] = filter(mask, latitude, longitude);
+
+      BY_RANK[mask] = new int[Integer.bitCount(mask)];
+      int k = 0;
+      for (int bit = 0; bit < 4; bit++)
+        if ((mask & (1 << bit)) != 0)
+          BY_RANK[mask][k++] = HEADINGS[bit];
+    }
+  }
+
+  //Pick a heading out of the open ones (a mask of the bits above), keeping to the
+  //ones towards the target. random is a value in [0, 1) like Math.random().
+  public static int choose (int open, int latitude, int longitude, double random) {
+    int[] options = BY_RANK[FILTERED[(open*3 + latitude+1)*3 + longitude+1]];
+    return options[(int) Math.floor(random*options.length)];
+  }
+
+  public static int filter (int options, int latitude, int longitude) {
+    //Consider NORTH-SOUTH cases
+    if (latitude == 1 && (options & NORTH) != 0)
+      //If north is possible and towards target, never go south
+      options &= ~SOUTH;
+    else if (latitude == -1 && (options & SOUTH) != 0)
+      //If south is possible and towards target, never go north
+      options &= ~NORTH;
+    else if ((longitude ==  1 && (options & EAST) != 0) ||
+             (longitude == -1 && (options & WEST) != 0))
+      //If the longitude target option is possible, remove these options as there is higher priority
+      options &= ~(NORTH | SOUTH);
+
+    //Consider EAST-WEST cases
+    if (longitude == 1 && (options & EAST) != 0)
+      //If east is possible and towards target, never go west
+      options &= ~WEST;
+    else if (longitude == -1 && (options & WEST) != 0)
+      //If west is possible and towards target, never go east
+      options &= ~EAST;
+    else if ((latitude ==  1 && (options & NORTH) != 0) ||
+             (latitude == -1 && (options & SOUTH) != 0))
+      //If the latitude target option is possible, remove these options as there is higher priority
+      options &= ~(EAST | WEST);
+
+    return options;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+  MazeRandom.java
+
+  PREAMBLE
+  Where the controllers here get their random numbers from instead of Math.random().
+  Math.random() is one java.util.Random shared by the whole JVM and it cant be
+  seeded, so a run where the robot did something odd cant be run again to see why.
+
+  Each thread has its own SplittableRandom, and nextDouble() gives a double in
+  [0, 1) the same as Math.random() so it can be dropped in where that was. A test
+  harness can put its own generator in place for the thread with set().
+
+  With -Drobomaze.seed=<long> every thread gets a generator split off one with
+  that seed, in the order the threads first ask for one. The GUI polls a
+  controller from a single ControllerThread, so a seeded run moves the same way
+  every time (as long as the maze is the same). This is the same class as the
+  one in RoboMaze2, where the simulators use it to give each maze its own stream.
+*/
+
+import java.util.SplittableRandom;
+
+public class MazeRandom {
+  public static final String PROPERTY = "robomaze.seed";
+
+  private static final SplittableRandom shared = root();
+  private static final ThreadLocal<SplittableRandom> current = ThreadLocal.withInitial(MazeRandom::split);
+
+  //A new generator seeded from the robomaze.seed property if it is set
+  public static SplittableRandom root () {
+    String seed = System.getProperty(PROPERTY);
+    return seed == null ? new SplittableRandom() : new SplittableRandom(Long.parseLong(seed));
+  }
+
+  private static SplittableRandom split () {
+    //SplittableRandom isnt thread safe, only this one is ever shared
+    synchronized (shared) {
+      return shared.split();
+    }
+  }
+
+  public static SplittableRandom get () {
+    return current.get();
+  }
+
+  public static void set (SplittableRandom random) {
+    current.set(random);
+  }
+
+  //A double in [0, 1), for anywhere that used Math.random()
+  public static double nextDouble () {
+    return current.get().nextDouble();
+  }
+
+  //An int in [0, bound)
+  public static int nextInt (int bound) {
+    return current.get().nextInt(bound);
+  }
+}
@@ -0,0 +1,237 @@
+/*
+  MoveLog.java
+
+  PREAMBLE
+  The move log for Ex1 and Ex2. They used to build an "I'm going left at a deadend"
+  String and System.out.println() it on every step, so with a big maze nearly all
+  the time went on writing to the console, and count.pl then had to read all that
+  text back to count the moves.
+
+  If the robomaze.moveLog property names a file each move is instead one 8 byte
+  record, a long made up of
+    bits 0-1  direction - IRobot.AHEAD
+    bits 2-3  what the tile was, DEADEND, CORRIDOR or JUNCTION (from the walls round it)
+    bits 8-63 the step number, counting from 0 for each log
+  after a 4 byte MAGIC at the start of the file. record() just puts the long in a
+  ring buffer and a background thread writes the buffer out to the file in blocks,
+  so the robot only waits on the disk if it gets a whole buffer ahead of it.
+  Records go into the ring in a synchronized block, so controllers on different
+  threads can share the one log, and the writer reads them in order after head has
+  been moved past them (head and tail are volatile, so nothing else is locked). The
+  file is written out fully when the JVM exits. If the writer fails (or dies from
+  anything at all) the moves from then on are thrown away rather than leaving
+  record() waiting for a writer that will never empty the ring.
+    java -Drobomaze.moveLog=moves.bin ...
+    java MoveLog moves.bin
+  gives the same "Summary of moves: Forward=.. Left=.. Right=.. Backwards=.." line
+  as count.pl does for the text. Without the property the text is printed as it
+  always was, so count.pl still works on that.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+public class MoveLog {
+  public static final String PROPERTY = "robomaze.moveLog";
+  public static final int DEADEND = 0;
+  public static final int CORRIDOR = 1;
+  public static final int JUNCTION = 2;
+
+  private static final int MAGIC = 0x524D4D4C; //"RMML"
+  private static final int CAPACITY = 1 << 16;
+  private static final long PARK_NANOS = 1000000;
+
+  private static MoveLog shared = null;
+
+  private final FileChannel channel;
+  private final long[] ring;
+  private volatile long head = 0;
+  private volatile long tail = 0;
+  private volatile boolean closed = false;
+  private volatile boolean failed = false;
+  private long steps = 0;
+  private final Thread writer;
+
+  public MoveLog (File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    channel.write(ByteBuffer.allocate(4).putInt(0, MAGIC));
+    ring = new long[CAPACITY];
+    writer = new Thread(this::drain, "MoveLog writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  //A log that prints the text instead
+  private MoveLog () {
+    channel = null;
+    ring = null;
+    writer = null;
+  }
+
+  //The log named by the robomaze.moveLog property, the text one if it isnt set or cant be opened
+  public static synchronized MoveLog shared () {
+    if (shared == null) {
+      String name = System.getProperty(PROPERTY);
+      try {
+        shared = name == null ? new MoveLog() : new MoveLog(new File(name));
+      } catch (IOException e) {
+        System.err.println("Move log printed instead: " + e.getMessage());
+        shared = new MoveLog();
+      }
+
+      if (shared.channel != null)
+        Runtime.getRuntime().addShutdownHook(new Thread(shared::close));
+    }
+    return shared;
+  }
+
+  //The tile type from the number of walls round it, as the text log has always had it
+  public static int cellClass (int walls) {
+    switch (walls) {
+      case 3: return DEADEND;
+      case 2: return CORRIDOR;
+      default: return JUNCTION;
+    }
+  }
+
+  //Log a move in direction from a tile with that many walls round it
+  public void record (int direction, int walls) {
+    if (channel == null) {
+      System.out.println(describe(direction, cellClass(walls)));
+      return;
+    }
+
+    synchronized (this) {
+      if (closed || failed)
+        return;
+
+      //Wait for the writer if it has fallen a whole buffer behind, as long as it is still going
+      while (head - tail == CAPACITY) {
+        if (closed || failed || !writer.isAlive())
+          return;
+        LockSupport.unpark(writer);
+        Thread.yield();
+      }
+      ring[(int) head & (CAPACITY - 1)] = steps++ << 8 | cellClass(walls) << 2 | (direction - IRobot.AHEAD);
+      head = head + 1;
+    }
+  }
+
+  public static String describe (int direction, int cellClass) {
+    String message = "I'm going ";
+    switch (direction) {
+      case IRobot.LEFT: message += "left";
+        break;
+      case IRobot.RIGHT: message += "right";
+        break;
+      case IRobot.BEHIND: message += "backwards";
+        break;
+      case IRobot.AHEAD: message += "forward";
+        break;
+    }
+
+    switch (cellClass) {
+      case DEADEND: return message + " at a deadend";
+      case CORRIDOR: return message + " down a corridor";
+      default: return message + " at a junction";
+    }
+  }
+
+  //Write out everything recorded so far and stop the writer
+  public void close () {
+    if (channel == null || closed)
+      return;
+
+    synchronized (this) {
+      closed = true;
+    }
+    LockSupport.unpark(writer);
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain () {
+    ByteBuffer block = ByteBuffer.allocateDirect(8192);
+    try {
+      while (true) {
+        //Read closed first so nothing recorded before the close is missed
+        boolean done = closed;
+        long end = head;
+        if (end == tail) {
+          if (done)
+            break;
+          LockSupport.parkNanos(PARK_NANOS);
+          continue;
+        }
+
+        for (long i = tail; i < end; i++) {
+          if (!block.hasRemaining())
+            write(block);
+          block.putLong(ring[(int) i & (CAPACITY - 1)]);
+        }
+        tail = end;
+        write(block);
+      }
+      channel.close();
+    } catch (Throwable t) {
+      failed = true;
+      System.err.println("Move log not written: " + t);
+      try {
+        channel.close();
+      } catch (IOException e) {
+        //Already failed
+      }
+      //Empty the ring of anything recorded before failed was seen
+      tail = head;
+    }
+  }
+
+  private void write (ByteBuffer block) throws IOException {
+    block.flip();
+    while (block.hasRemaining())
+      channel.write(block);
+    block.clear();
+  }
+
+  //Count the moves in a log file by direction, AHEAD to LEFT
+  public static long[] summarise (File file) throws IOException {
+    long[] moves = new long[4];
+    try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer block = ByteBuffer.allocateDirect(8192);
+      while (block.position() < 4 && in.read(block) != -1);
+      if (block.position() < 4 || block.getInt(0) != MAGIC)
+        throw new IOException(file + " is not a move log");
+
+      block.flip().position(4);
+      while (true) {
+        while (block.remaining() >= 8)
+          moves[(int) block.getLong() & 3]++;
+        //Keep any part of a record for the next read
+        block.compact();
+        if (in.read(block) == -1)
+          break;
+        block.flip();
+      }
+    }
+    return moves;
+  }
+
+  public static void main (String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: java MoveLog <file>");
+      return;
+    }
+
+    long[] moves = summarise(new File(args[0]));
+    System.out.println("Summary of moves: Forward=" + moves[IRobot.AHEAD - IRobot.AHEAD] + " Left=" + moves[IRobot.LEFT - IRobot.AHEAD] +
+                       " Right=" + moves[IRobot.RIGHT - IRobot.AHEAD] + " Backwards=" + moves[IRobot.BEHIND - IRobot.AHEAD]);
+  }
+}
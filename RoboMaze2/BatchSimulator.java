@@ -0,0 +1,184 @@
+/*
+  BatchSimulator.java
+
+  PREAMBLE
+  Runs a controller over lots of mazes with no GUI. The only other way to run a
+  controller without the GUI is uk.ac.warwick.dcs.maze.assess.CmdTest which does
+  one PrimGenerator maze, once, and still sends every step through the EventBus.
+
+  This drives controlRobot(IRobot) directly in a tight loop:
+    - A HeadlessGenerator makes each maze (no Swing config panel)
+    - A HeadlessRobot moves around it (no EventBus, no ControllerThread)
+    - Each maze gets a fresh controller instance which is run over it a number
+    of times, calling reset() between runs the same as PolledControllerWrapper
+    - The controller is called through a ControllerDispatch so there is no
+    reflection on each poll
+
+  Each run can be written out as it finishes by giving it a RunMetricsSink.
+
+  Every maze gets its own SplittableRandom, split off the one given to setRandom(),
+  which is what the controller (and anything else using MazeRandom) gets while the
+  maze is run. With -Drobomaze.seed=<long> the whole batch, mazes included, comes
+  out the same every time.
+
+  Usage:
+    java -cp maze-environment.jar:. BatchSimulator <Controller> [mazes] [runs] [size] [loopy] [maxPolls] [metricsFile]
+
+  eg. java -cp maze-environment.jar:. BatchSimulator GrandFinaleV4 1000 10 25 true
+*/
+
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import uk.ac.warwick.dcs.maze.logic.RobotReport;
+import java.io.File;
+import java.util.SplittableRandom;
+
+public class BatchSimulator {
+  private Class<?> controllerClass;
+  private HeadlessGenerator generator;
+  private int runsPerMaze;
+  private long maxPolls;
+  private RunMetricsSink metrics = null;
+  private SplittableRandom random = MazeRandom.root();
+  private int mazesRun = 0;
+
+  private long totalPolls = 0;
+  private long totalSteps = 0;
+  private long totalCollisions = 0;
+  private int runsCompleted = 0;
+  private int goalsReached = 0;
+  private int errors = 0;
+
+  public BatchSimulator (Class<?> controllerClass, HeadlessGenerator generator, int runsPerMaze, long maxPolls) {
+    this.controllerClass = controllerClass;
+    this.generator = generator;
+    this.runsPerMaze = runsPerMaze;
+    this.maxPolls = maxPolls;
+  }
+
+  public void runMaze () throws Exception {
+    runMaze(generator.generateMaze());
+  }
+
+  public void setMetricsSink (RunMetricsSink metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setRandom (SplittableRandom random) {
+    this.random = random;
+  }
+
+  public void runMaze (Maze maze) throws Exception {
+    runMaze(maze, mazesRun);
+  }
+
+  public void runMaze (Maze maze, int mazeId) throws Exception {
+    mazesRun++;
+    SplittableRandom previous = MazeRandom.get();
+    MazeRandom.set(random.split());
+    try {
+      runAll(maze, mazeId);
+    } finally {
+      MazeRandom.set(previous);
+    }
+  }
+
+  private void runAll (Maze maze, int mazeId) throws Exception {
+    HeadlessRobot robot = new HeadlessRobot(maze);
+    ControllerDispatch controller = new ControllerDispatch(controllerClass.getDeclaredConstructor().newInstance());
+
+    for (int run = 0; run < runsPerMaze; run++) {
+      long polls = 0;
+      long startTime = metrics != null ? System.nanoTime() : 0;
+      long startBytes = metrics != null ? RunMetricsSink.threadAllocatedBytes() : 0;
+      try {
+        while (!robot.atTarget() && polls < maxPolls) {
+          controller.controlRobot(robot);
+          robot.advance();
+          polls++;
+        }
+      } catch (Exception e) {
+        //A broken controller just fails this run, the rest of the batch carries on
+        errors++;
+      }
+
+      if (controller.hasReset())
+        controller.reset();
+
+      totalPolls += polls;
+      totalSteps += robot.getSteps();
+      totalCollisions += robot.getCollisions();
+      RobotReport report = robot.reset();
+      if (report.goalReached())
+        goalsReached++;
+      runsCompleted++;
+
+      if (metrics != null)
+        metrics.record(controllerClass.getName(), mazeId, report.getRunNumber(), report.goalReached(), report.getSteps(), report.getCollisions(),
+          System.nanoTime() - startTime, startBytes < 0 ? -1 : RunMetricsSink.threadAllocatedBytes() - startBytes);
+    }
+  }
+
+  public long getTotalPolls () {
+    return totalPolls;
+  }
+
+  public long getTotalSteps () {
+    return totalSteps;
+  }
+
+  public long getTotalCollisions () {
+    return totalCollisions;
+  }
+
+  public int getRunsCompleted () {
+    return runsCompleted;
+  }
+
+  public int getGoalsReached () {
+    return goalsReached;
+  }
+
+  public int getErrors () {
+    return errors;
+  }
+
+  public static void main (String[] args) throws Exception {
+    if (args.length < 1) {
+      System.out.println("Usage: BatchSimulator <Controller> [mazes] [runs] [size] [loopy] [maxPolls] [metricsFile]");
+      System.exit(1);
+    }
+
+    //Make sure nothing can bring up a window toolkit by accident
+    System.setProperty("java.awt.headless", "true");
+
+    String controllerName = args[0];
+    int mazes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    int size = args.length > 3 ? Integer.parseInt(args[3]) : 15;
+    boolean loopy = args.length > 4 && Boolean.parseBoolean(args[4]);
+    long maxPolls = args.length > 5 ? Long.parseLong(args[5]) : 1000000;
+    RunMetricsSink metrics = args.length > 6 ? new RunMetricsSink(new File(args[6]), true) : null;
+
+    //Anything bigger than the GUI can make is stored 1 bit per tile
+    SplittableRandom random = MazeRandom.root();
+    HeadlessGenerator generator = new HeadlessGenerator(size, size, loopy);
+    generator.setPacked(size > 100);
+    generator.setRandom(random.split());
+
+    BatchSimulator sim = new BatchSimulator(Class.forName(controllerName), generator, runs, maxPolls);
+    sim.setMetricsSink(metrics);
+    sim.setRandom(random.split());
+
+    long start = System.nanoTime();
+    for (int m = 0; m < mazes; m++)
+      sim.runMaze();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    if (metrics != null)
+      metrics.close();
+
+    System.out.println(controllerName + ": " + mazes + " mazes x " + runs + " runs (" + (2*size+1) + "x" + (2*size+1) + (loopy ? " loopy" : "") + ")");
+    System.out.println("  Goals reached: " + sim.getGoalsReached() + "/" + sim.getRunsCompleted() + (sim.getErrors() > 0 ? " (" + sim.getErrors() + " errors)" : ""));
+    System.out.println("  Polls: " + sim.getTotalPolls() + "  Steps: " + sim.getTotalSteps() + "  Collisions: " + sim.getTotalCollisions());
+    System.out.println(String.format("  Time: %.2fs  Steps/s: %.0f  Polls/s: %.0f", seconds, sim.getTotalSteps() / seconds, sim.getTotalPolls() / seconds));
+  }
+}
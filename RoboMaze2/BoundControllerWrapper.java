@@ -0,0 +1,251 @@
+/*
+  BoundControllerWrapper.java
+
+  PREAMBLE
+  A drop in replacement for uk.ac.warwick.dcs.maze.controllers.PolledControllerWrapper
+  which does exactly the same loop (poll, advance, sleep, until the target is
+  reached or reset() is called) but goes through a ControllerDispatch rather than
+  reflection on every poll. Like PolledControllerWrapper, a controller without a
+  controlRobot(IRobot) is still accepted: the error is printed, and the loop runs
+  until reset() but never advances the robot (the jar's wrapper fails on the poll
+  before it gets to advance()). A missing reset() is skipped. Such a controller
+  always gets the paced loop, so turbo mode doesnt spin flat out doing nothing.
+
+  PolledControllerWrapper also calls the private RobotImpl.advance() with
+  getDeclaredMethod + setAccessible + invoke every poll. That lookup is done once
+  here, and a HeadlessRobot is advanced directly.
+
+  It can also be paused and resumed between polls. A paused controller waits on a
+  Condition rather than in a synchronized block, so when it is run on a virtual
+  thread (see SimulationScheduler) it gives its carrier thread back while it waits.
+  reset() only ends the current run, the same as in the jar, so the GUI can start
+  the controller again. stop() ends it for good: a start() after (or racing with)
+  stop() returns straight away without running.
+
+  In turbo mode (setTurbo(true)) the loop is cut down to just poll and advance:
+    - No sleep at all, whatever the delay is set to
+    - The goal check compares ints from an IFastRobot instead of two new Points
+    - No "POLL" debug check
+    - A HeadlessRobot has its event bus taken off it for the run, so no
+    ROBOT_RELOCATE or ROBOT_COLLISION events are sent for each step. It is put
+    back when the run finishes, so the robot's reset() still sends its two events
+    once per run: the ROBOT_RELOCATE back to the start and the ROBOT_REPORT.
+  Only a HeadlessRobot has its per-step events cut. RobotImpl's advance() still
+  broadcasts a ROBOT_RELOCATE on the jar's static EventBus every step (it needs it
+  to move at all), so with one of those turbo mode only saves the sleep and the
+  debug check.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.IRobotController;
+import uk.ac.warwick.dcs.maze.logic.MazeLogic;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class BoundControllerWrapper implements IRobotController {
+  protected IRobot robot;
+  private volatile boolean active = false;
+  private volatile boolean paused = false;
+  private volatile boolean stopped = false;
+  private final ReentrantLock pauseLock = new ReentrantLock();
+  private final Condition unpaused = pauseLock.newCondition();
+  private int delay = 200;
+  private boolean turbo = false;
+  private final Object controller;
+  //null if the controller has no controlRobot(IRobot)
+  private ControllerDispatch dispatch = null;
+  private MethodHandle advance;
+
+  public BoundControllerWrapper (Object pollObj) {
+    controller = pollObj;
+    try {
+      dispatch = new ControllerDispatch(pollObj);
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void start () {
+    active = true;
+    //stop() sets stopped before clearing active, so one of them is always seen
+    if (stopped) {
+      active = false;
+      return;
+    }
+
+    if (turbo && dispatch != null)
+      runTurbo();
+    else
+      runPaced();
+
+    if (dispatch != null && dispatch.hasReset()) {
+      try {
+        dispatch.reset();
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private void runPaced () {
+    while (!robot.getLocation().equals(robot.getTargetLocation()) && active) {
+      waitWhilePaused();
+      if (!active)
+        break;
+
+      if (MazeLogic.debug)
+        System.out.println("POLL");
+
+      try {
+        if (dispatch != null) {
+          dispatch.controlRobot(robot);
+          advance();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+
+      if (delay > 0)
+        robot.sleep(delay);
+    }
+  }
+
+  private void runTurbo () {
+    IFastRobot fast = robot instanceof IFastRobot ? (IFastRobot) robot : null;
+    HeadlessRobot headless = robot instanceof HeadlessRobot ? (HeadlessRobot) robot : null;
+    ConcurrentEventBus eventBus = null;
+    if (headless != null) {
+      eventBus = headless.getEventBus();
+      headless.setEventBus(null);
+    }
+
+    try {
+      while (active && !atTarget(fast)) {
+        waitWhilePaused();
+        if (!active)
+          break;
+
+        try {
+          dispatch.controlRobot(robot);
+          advance();
+        } catch (Exception e) {
+          e.printStackTrace();
+        }
+      }
+    } finally {
+      if (headless != null)
+        headless.setEventBus(eventBus);
+    }
+  }
+
+  private boolean atTarget (IFastRobot fast) {
+    if (fast != null)
+      return fast.getX() == fast.getTargetX() && fast.getY() == fast.getTargetY();
+    return robot.getLocation().equals(robot.getTargetLocation());
+  }
+
+  public void setDelay (int delay) {
+    this.delay = delay;
+  }
+
+  public int getDelay () {
+    return delay;
+  }
+
+  public void setTurbo (boolean turbo) {
+    this.turbo = turbo;
+  }
+
+  public boolean isTurbo () {
+    return turbo;
+  }
+
+  public void reset () {
+    active = false;
+    resume();
+  }
+
+  //End the current run and refuse any more
+  public void stop () {
+    stopped = true;
+    reset();
+  }
+
+  public boolean isStopped () {
+    return stopped;
+  }
+
+  public void pause () {
+    paused = true;
+  }
+
+  public void resume () {
+    pauseLock.lock();
+    try {
+      paused = false;
+      unpaused.signalAll();
+    } finally {
+      pauseLock.unlock();
+    }
+  }
+
+  public boolean isPaused () {
+    return paused;
+  }
+
+  public void setRobot (IRobot robot) {
+    this.robot = robot;
+    advance = null;
+
+    //Find the robots private advance() once rather than every poll
+    if (!(robot instanceof HeadlessRobot)) {
+      try {
+        Method m = robot.getClass().getDeclaredMethod("advance");
+        m.setAccessible(true);
+        advance = MethodHandles.lookup().unreflect(m).bindTo(robot).asType(MethodType.methodType(void.class));
+      } catch (Exception e) {
+        //Same as the original wrapper, a robot without advance() just doesnt move
+      }
+    }
+  }
+
+  public Object getControlObject () {
+    return controller;
+  }
+
+  public String getDescription () {
+    return "Polled Controller" + (dispatch != null && dispatch.hasReset() ? " with reset()" : " w/o reset()");
+  }
+
+  private void waitWhilePaused () {
+    if (!paused)
+      return;
+
+    pauseLock.lock();
+    try {
+      while (paused && active)
+        unpaused.awaitUninterruptibly();
+    } finally {
+      pauseLock.unlock();
+    }
+  }
+
+  private void advance () {
+    if (robot instanceof HeadlessRobot) {
+      ((HeadlessRobot) robot).advance();
+      return;
+    }
+
+    if (advance != null) {
+      try {
+        advance.invokeExact();
+      } catch (Throwable t) {
+        //The original wrapper swallows anything thrown by advance() so this does too
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+  ConcurrentEventBus.java
+
+  PREAMBLE
+  A replacement for uk.ac.warwick.dcs.maze.logic.EventBus for the robots in this
+  folder. The jar's EventBus keeps its clients in a LinkedList and broadcast() is
+  static synchronized, so every step of the robot takes the same lock as the GUI
+  and every other robot.
+
+  Differences from the jar version:
+    - Clients are kept in a CopyOnWriteArrayList. Adding and removing a client
+    copies the list, but broadcast() just walks whatever list was there when it
+    started, with no lock at all.
+    - It is an object rather than static, so robots running side by side can each
+    have their own bus.
+    - A client can be added in batching mode with addBatchedClient(). It then gets
+    its own bounded queue and its own thread, so the robot only pays for putting
+    the event in the queue. The thread takes everything that has built up in the
+    queue at once and passes it on in order; an IEventBatchClient gets the lot in
+    one notifyBatch() call. If the queue fills up, broadcast() waits for the client
+    to catch up rather than throwing events away, so the client never misses a move.
+    removeClient() closes the queue: anything still waiting in it is passed on by
+    its thread, which then ends, and a broadcast() waiting on the full queue gives up
+    and skips it. A broadcast() already walking the old list can still put events in
+    a closed queue, they are dropped.
+
+  Exceptions thrown by a client are printed and skipped like in the jar version.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IEvent;
+import uk.ac.warwick.dcs.maze.logic.IEventClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentEventBus {
+  private final CopyOnWriteArrayList<IEventClient> clients = new CopyOnWriteArrayList<>();
+  private final Map<IEventClient, BatchQueue> batched = new ConcurrentHashMap<>();
+
+  public void addClient (IEventClient client) {
+    clients.addIfAbsent(client);
+  }
+
+  public void addBatchedClient (IEventClient client, int capacity) {
+    BatchQueue queue = new BatchQueue(client, capacity);
+    if (batched.putIfAbsent(client, queue) == null) {
+      queue.start();
+      clients.add(queue);
+    }
+  }
+
+  public void removeClient (IEventClient client) {
+    BatchQueue queue = batched.remove(client);
+    if (queue != null) {
+      clients.remove(queue);
+      queue.stop();
+    } else
+      clients.remove(client);
+  }
+
+  public boolean hasClients () {
+    return !clients.isEmpty();
+  }
+
+  public void broadcast (IEvent event) {
+    for (IEventClient client : clients) {
+      try {
+        client.notify(event);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private static class BatchQueue implements IEventClient, Runnable {
+    private static final long WAIT_MILLIS = 50;
+
+    private final IEventClient client;
+    private final BlockingQueue<IEvent> queue;
+    private final int capacity;
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    public BatchQueue (IEventClient client, int capacity) {
+      this.client = client;
+      this.capacity = capacity;
+      queue = new ArrayBlockingQueue<>(capacity);
+      thread = new Thread(this, "EventBus batch for " + client.getClass().getName());
+      thread.setDaemon(true);
+    }
+
+    public void start () {
+      thread.start();
+    }
+
+    //Stop taking events, the thread passes on what is already queued and then ends
+    public void stop () {
+      closed = true;
+    }
+
+    public void notify (IEvent event) {
+      try {
+        //Waits while the client is a whole queue behind, checking it hasnt been removed
+        while (!closed)
+          if (queue.offer(event, WAIT_MILLIS, TimeUnit.MILLISECONDS))
+            return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    public void run () {
+      List<IEvent> batch = new ArrayList<>(capacity);
+      while (true) {
+        try {
+          //Read closed first so an event queued just before the close is still delivered
+          boolean done = closed;
+          IEvent first = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            if (done)
+              return;
+            continue;
+          }
+
+          batch.add(first);
+          queue.drainTo(batch, capacity - 1);
+          deliver(batch);
+        } catch (InterruptedException e) {
+          closed = true;
+        } catch (Throwable t) {
+          //Anything at all, as broadcast() may be waiting on this thread to empty the queue
+          t.printStackTrace();
+        }
+        batch.clear();
+      }
+    }
+
+    private void deliver (List<IEvent> batch) {
+      if (client instanceof IEventBatchClient) {
+        try {
+          ((IEventBatchClient) client).notifyBatch(batch);
+        } catch (Throwable e) {
+          e.printStackTrace();
+        }
+        return;
+      }
+
+      for (IEvent event : batch) {
+        try {
+          client.notify(event);
+        } catch (Throwable e) {
+          e.printStackTrace();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+  ControllerDispatch.java
+
+  PREAMBLE
+  Calls controlRobot(IRobot) and reset() on a controller object. The jar's
+  PolledControllerWrapper and BOSSReflectionHarness look these up with
+  Class.getMethod and then call Method.invoke with a new Object[] every single
+  poll, which is a noticeable part of the run time once a batch gets into tens
+  of millions of polls.
+
+  Here the methods are looked up once when the dispatch is made and bound to the
+  controller as MethodHandles, so each poll is one invokeExact(robot) call with no
+  argument array and nothing boxed.
+
+  Odd controller classes that a public lookup cant see (eg. not public, or a
+  public method on a non public class) are unreflected after setAccessible, and if
+  even that fails it falls back to Method.invoke the same as the wrapper does.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+public class ControllerDispatch {
+  private static final MethodType CONTROL_TYPE = MethodType.methodType(void.class, IRobot.class);
+  private static final MethodType RESET_TYPE = MethodType.methodType(void.class);
+
+  private final Object controller;
+  private final MethodHandle controlRobot;
+  private final MethodHandle reset;
+
+  //Only used if the methods could not be turned into handles
+  private final Method controlRobotMethod;
+  private final Method resetMethod;
+  private final Object[] args = new Object[1];
+
+  public ControllerDispatch (Object controller) throws NoSuchMethodException {
+    this.controller = controller;
+
+    Method control = controller.getClass().getMethod("controlRobot", IRobot.class);
+    Method rst = null;
+    try {
+      rst = controller.getClass().getMethod("reset");
+    } catch (NoSuchMethodException e) {
+      //Controllers dont have to have a reset method
+    }
+
+    controlRobot = bind(control, CONTROL_TYPE);
+    reset = rst == null ? null : bind(rst, RESET_TYPE);
+    controlRobotMethod = controlRobot == null ? control : null;
+    resetMethod = reset == null ? rst : null;
+  }
+
+  private MethodHandle bind (Method method, MethodType type) {
+    MethodHandle handle;
+    try {
+      handle = MethodHandles.publicLookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      try {
+        method.setAccessible(true);
+        handle = MethodHandles.lookup().unreflect(method);
+      } catch (Exception e2) {
+        return null;
+      }
+    }
+
+    //Bind the controller in as the receiver and throw away any return value
+    if (!Modifier.isStatic(method.getModifiers()))
+      handle = handle.bindTo(controller);
+    return handle.asType(type);
+  }
+
+  public void controlRobot (IRobot robot) {
+    if (controlRobot != null) {
+      try {
+        controlRobot.invokeExact(robot);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    } else {
+      args[0] = robot;
+      invoke(controlRobotMethod, args);
+    }
+  }
+
+  public boolean hasReset () {
+    return reset != null || resetMethod != null;
+  }
+
+  public void reset () {
+    if (reset != null) {
+      try {
+        reset.invokeExact();
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    } else if (resetMethod != null)
+      invoke(resetMethod, null);
+  }
+
+  public Object getController () {
+    return controller;
+  }
+
+  private void invoke (Method method, Object[] params) {
+    try {
+      method.invoke(controller, params);
+    } catch (InvocationTargetException e) {
+      //Unwrap so that callers see the controllers own exception like they do with the handles
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw new RuntimeException(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
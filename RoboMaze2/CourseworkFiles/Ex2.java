@@ -57,6 +57,7 @@ import java.text.MessageFormat;
 
 public class Ex2 {
   private int[] allDirections = new int[] {IRobot.AHEAD, IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND};
+  private SensorSnapshot sensors = new SensorSnapshot();
   private int pollRun = 0;
   private RobotData robotData;
   private boolean exploreMode = true;
@@ -68,6 +69,7 @@ public class Ex2 {
       robotData = new RobotData();
 
     //Chose behaviour based on current mode
+    sensors.update(robot);
     direction = exploreMode ? exploreControl(robot) : backtrackControl(robot);
 
     pollRun++;
@@ -114,7 +116,7 @@ public class Ex2 {
 
     //Search through the 4 surrounding tiles and return the first one which is not a wall
     for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
+      if (sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -124,7 +126,7 @@ public class Ex2 {
   private int corridorControl (IRobot robot) {
     //Travel forwards, or turn left or right if at corner
     for (int dir : allDirections)
-      if (dir != IRobot.BEHIND && robot.look(dir) != IRobot.WALL)
+      if (dir != IRobot.BEHIND && sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -140,10 +142,10 @@ public class Ex2 {
 
     //Add to the correct list or neither if a wall
     for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE) {
+      if (sensors.look(dir) == IRobot.PASSAGE) {
         passages[passagePointer] = dir;
         passagePointer++;
-      } else if (robot.look(dir) == IRobot.BEENBEFORE) {
+      } else if (sensors.look(dir) == IRobot.BEENBEFORE) {
         beenbefores[beenbeforePointer] = dir;
         beenbeforePointer++;
       }
@@ -156,9 +158,9 @@ public class Ex2 {
     //If there are non-beenbefore passages, randomly choose between those.
     //If not randomly choose between the beenbefores.
     if (passagePointer > 0)
-      return passages[(int) Math.floor(Math.random() * passagePointer)];
+      return passages[(int) Math.floor(MazeRandom.nextDouble() * passagePointer)];
     else
-      return beenbefores[(int) Math.floor(Math.random() * beenbeforePointer)];
+      return beenbefores[(int) Math.floor(MazeRandom.nextDouble() * beenbeforePointer)];
   }
 
   private int convertHeadingToDirection (IRobot robot, int heading) {
@@ -227,25 +229,11 @@ public class Ex2 {
   }
 
   private byte nonwallExits (IRobot robot) {
-    //Count the number of surrounding tiles are not WALLs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.nonwallExits();
   }
 
   private byte passageExits (IRobot robot) {
-    //Count the number of surrounding tiles are PASSAGEs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.passageExits();
   }
 
   public void reset() {
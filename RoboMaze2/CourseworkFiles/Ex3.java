@@ -43,6 +43,7 @@ import java.text.MessageFormat;
 
 public class Ex3 {
   private int[] allDirections = new int[] {IRobot.AHEAD, IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND};
+  private SensorSnapshot sensors = new SensorSnapshot();
   private int pollRun = 0;
   private RobotData robotData;
   private boolean exploreMode = true;
@@ -54,6 +55,7 @@ public class Ex3 {
       robotData = new RobotData();
 
     //Chose behaviour based on current mode
+    sensors.update(robot);
     direction = exploreMode ? exploreControl(robot) : backtrackControl(robot);
 
     pollRun++;
@@ -111,7 +113,7 @@ public class Ex3 {
 
     //Search through the 4 surrounding tiles and return the first one which is not a wall
     for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
+      if (sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -121,7 +123,7 @@ public class Ex3 {
   private int corridorControl (IRobot robot) {
     //Travel forwards, or turn left or right if at corner
     for (int dir : allDirections)
-      if (dir != IRobot.BEHIND && robot.look(dir) != IRobot.WALL)
+      if (dir != IRobot.BEHIND && sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -134,13 +136,13 @@ public class Ex3 {
     byte passagePointer = 0;
 
     for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE) {
+      if (sensors.look(dir) == IRobot.PASSAGE) {
         passages[passagePointer] = dir;
         passagePointer++;
       }
 
     //If there are non-beenbefore passages, randomly choose between those.
-    return passages[(int) Math.floor(Math.random() * passagePointer)];
+    return passages[(int) Math.floor(MazeRandom.nextDouble() * passagePointer)];
   }
 
   private int convertHeadingToDirection (IRobot robot, int heading) {
@@ -209,25 +211,11 @@ public class Ex3 {
   }
 
   private byte nonwallExits (IRobot robot) {
-    //Count the number of surrounding tiles are not WALLs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.nonwallExits();
   }
 
   private byte passageExits (IRobot robot) {
-    //Count the number of surrounding tiles are PASSAGEs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.passageExits();
   }
 
   public void reset() {
@@ -42,6 +42,12 @@
   which very frequently found a much longer route than was possible, and then just stuck with
   it no matter how inefficient in was in subsequent runs of the maze.
 
+  The A* state is kept in plain int arrays the size of the maze (see RobotData)
+  rather than one Node object per tile, each node being just its position in those
+  arrays: x*height + y. The heuristic is worked out when a node is first added to
+  the open set rather than for every tile up front. Trips between open nodes are
+  worked out once when the next node is chosen rather than again on every poll.
+
   Run == 1 --> V1 more efficient for standard mazes
                V1 more efficient for loopy mazes
   Run >= 2 --> V1 and V2 equally efficient for standard mazes (Both optimal)
@@ -49,8 +55,11 @@
 */
 
 import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 
 public class GrandFinale {
@@ -67,8 +76,9 @@ public class GrandFinale {
     //chosen in teh first iteration of aStarSearch()
     if (pollRun == 0 && robot.getRuns() == 0) {
       rd = new RobotData(robot);
-      rd.allNodes[robot.getLocation().x][robot.getLocation().y].g = 0;
-      rd.openNodes.add (rd.allNodes[robot.getLocation().x][robot.getLocation().y]);
+      int start = rd.node(robot.getLocation().x, robot.getLocation().y);
+      rd.setG(start, 0);
+      rd.openNodes.add (start);
     }
 
     //If a path exists, then just follow it as it is the best route
@@ -86,9 +96,15 @@ public class GrandFinale {
   public void reset () {
     pollRun = 0;
     currentNodeInPath = 0;
+
+    //The robot is back at the start, so any trip worked out from where it was is no use
+    if (rd != null) {
+      rd.travelTarget = -1;
+      rd.travelStep = rd.travelLength = 0;
+    }
   }
 
-  private Node lowestFNode () {
+  private int lowestFNode () {
     //Slightly weighted such that getting close to the target is more important
     //than being closer to the start. Should make the first run a little faster
     //while only making the chance of producing a less efficient path only a little
@@ -99,59 +115,57 @@ public class GrandFinale {
     //1.4 and in fact the value rt2 seem to work better with a good balance of directness and
     //thouroughness to ensure 200*200 loopy mazes are solved in an optimal/nearly optimal way
     //every time.
-    double weight = 1.4;
-
+    //The weight is OpenSet.WEIGHT as the open set is kept in order of g + weight*h.
     if (rd.openNodes.size() == 0)
-     return null;
+     return -1;
 
-    Node node = rd.openNodes.get(0);
-    for (Node n : rd.openNodes)
-      if (n.g + weight*n.h < node.g + weight*node.h)
-        node = n;
-
-    return node;
+    return rd.openNodes.peek();
   }
 
   private int aStarSearch (IRobot robot) {
     //Get the next node in openNodes with the lowest F value to be the next
     //node to search.
-    Node target = lowestFNode();
+    int target = lowestFNode();
+    int current = rd.node(robot.getLocation().x, robot.getLocation().y);
 
     //If already at target node, then perform aStarSearch calculations to add the neighbouring nodes
     //and assign g values and parents nodes where appropriate eg. when the neighbour is faster reached
     //from this node rather than the node it was found from before or if this is the first time
     //finding it.
-    if (target.Equals(robot.getLocation().x, robot.getLocation().y)) {
+    if (target == current) {
       //Make sure this node isnt chosen again when it shouldnt be
-      rd.closedNodes.add (target);
+      rd.closedNodes.set (target);
       rd.openNodes.remove(target);
 
       //List all possible nodes from this tile
-      Node[] options = new Node[] { rd.allNodes[robot.getLocation().x][robot.getLocation().y-1],
-                                    rd.allNodes[robot.getLocation().x+1][robot.getLocation().y],
-                                    rd.allNodes[robot.getLocation().x][robot.getLocation().y+1],
-                                    rd.allNodes[robot.getLocation().x-1][robot.getLocation().y]
-                                  };
+      int[] options = new int[] { rd.neighbour(current, IRobot.NORTH),
+                                  rd.neighbour(current, IRobot.EAST),
+                                  rd.neighbour(current, IRobot.SOUTH),
+                                  rd.neighbour(current, IRobot.WEST)
+                                };
 
       //Remove nodes which are walls
       for (int x = 0; x < 4; x++)
-        if (lookHeading (robot, IRobot.NORTH + x) == IRobot.WALL || rd.closedNodes.contains (options[x]))
-          options[x] = null;
+        if (lookHeading (robot, IRobot.NORTH + x) == IRobot.WALL || rd.closedNodes.get (options[x]))
+          options[x] = -1;
 
       //For each node neighbouring this one, that isnt a wall or has been reached before:
       //  Set g values if this is a better route to them
       //  Add to the openNodes list if they are newly discovered
       //  If the node is the target tile, use the linked list of parents to recreate the fastest path then end run
+      int finish = rd.node(robot.getTargetLocation().x, robot.getTargetLocation().y);
       for(int x = 0; x < 4; x++) {
-        if (options[x] != null) {
-          int tempG = target.g + 1;
-          if (tempG < options[x].g) {
-            options[x].parent = target;
-            options[x].g = tempG;
+        if (options[x] != -1) {
+          int tempG = rd.getG(target) + 1;
+          if (tempG < rd.getG(options[x])) {
+            rd.setParent(options[x], target);
+            rd.setG(options[x], tempG);
             if (rd.openNodes.contains(options[x]) == false)
               rd.openNodes.add (options[x]);
+            else
+              rd.openNodes.decreased (options[x]);
           }
-          if (options[x].Equals(robot.getTargetLocation().x, robot.getTargetLocation().y)) {
+          if (options[x] == finish) {
             rd.createPath(options[x]);
             return getHeadingToNeighbour(robot, options[x]);
           }
@@ -164,77 +178,83 @@ public class GrandFinale {
 
 
     //Start making way to next lowest node
-    return findPathToNext (robot, lowestFNode(), null);
+    return findPathToNext (robot, lowestFNode());
   }
 
-  private int findPathToNext (IRobot robot, Node target, List<Node> path) {
-    //Recursively create a temporary path from the target node back until either:
-    //  The path reaches the robots current position, then travel in the direction of the target.
-    //  Or the path reaches the start node, then:
-    //    If robot is currently one tile away from the path, move onto it
-    //    Else, move to the current tiles parent until eventually 1 tile away from the path
+  private int findPathToNext (IRobot robot, int target) {
+    //Travel to the target node over tiles that have already been explored, by going back
+    //along the parents of the current tile until either:
+    //  The robot is on the targets own path back to the start, then follow that out to the target.
+    //  Or the robot is one tile away from the targets path, then move onto it (at the point
+    //  closest to the target) and follow it from there.
 
     //The two paths between the target and the current position will ALWAYS converge as they both
     //end at the start node. So worst case scenario, the robot travels all the way back to the start,
     //and then follows the path it originally took to get to the target node the first time.
 
-    //If first iteration, define an empty list
-    if (path == null)
-      path = new ArrayList<> ();
+    //Nothing about the explored tiles changes while travelling, so the whole trip is worked out
+    //once when a new target is chosen and each poll after that just takes the next heading.
+    if (rd.travelTarget != target || rd.travelStep >= rd.travelLength)
+      planTravel(rd.node(robot.getLocation().x, robot.getLocation().y), target);
 
-    //Add the current target node to the list as is the next part of the path back to the start
-    path.add(target);
+    return rd.travel[rd.travelStep++];
+  }
 
-    //If target is the first node then start backtracking from current until on the path
-    if (target.parent == null) {
-      Node current = rd.allNodes[robot.getLocation().x][robot.getLocation().y];
+  private void planTravel (int current, int target) {
+    //Number the nodes on the targets path back to the start, 1 being the target
+    int depth = 0;
+    for (int n = target; n != -1; n = rd.getParent(n)) {
+      if (depth == rd.pathNodes.length)
+        rd.pathNodes = Arrays.copyOf(rd.pathNodes, depth*2);
+      rd.pathNodes[depth++] = n;
+      rd.onPath[n] = depth;
+    }
 
-      //If can get onto the path from current, do that
-      for (Node n : path) {
-        int heading = getHeadingToNeighbour(robot, n);
-        if (heading != 0)
-          return heading;
+    rd.travelTarget = target;
+    rd.travelLength = 0;
+    rd.travelStep = 0;
+
+    int position = current;
+    while (position != target) {
+      int next;
+      if (rd.onPath[position] != 0) {
+        //On the targets path, so go one node further out towards it
+        next = rd.pathNodes[rd.onPath[position] - 2];
+      } else {
+        //If can get onto the path from here, do that at the node closest to the target
+        //Else, backtrack towards the start until the path is 1 tile away
+        next = -1;
+        for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++) {
+          int n = rd.neighbour(position, heading);
+          if (rd.onPath[n] != 0 && (next == -1 || rd.onPath[n] < rd.onPath[next]))
+            next = n;
+        }
+        if (next == -1)
+          next = rd.getParent(position);
       }
 
-      //Else, find a path to the path, not necessarily the shortest
-      //  By backtracking to the start until the path is 1 tile away.
-      return getHeadingToNeighbour(robot, current.parent);
+      if (rd.travelLength == rd.travel.length)
+        rd.travel = Arrays.copyOf(rd.travel, rd.travelLength*2);
+      rd.travel[rd.travelLength++] = getHeadingToNeighbour(position, next);
+      position = next;
     }
 
-    //If target tile is next to current tile, move onto target ==> DONE
-    if (target.parent.Equals(robot.getLocation().x, robot.getLocation().y))
-      return getHeadingToNeighbour(robot, target);
-
-    //Recursively move onto the next parent node back to the start
-    return findPathToNext (robot, target.parent, path);
+    //Clear the numbering ready for next time
+    for (int i = 0; i < depth; i++)
+      rd.onPath[rd.pathNodes[i]] = 0;
   }
 
-  private int getHeadingToNeighbour (IRobot robot, Node next) {
+  private int getHeadingToNeighbour (IRobot robot, int next) {
     //Find the heading which leads to the neighbour node given in params.
-    Node[] options = new Node[] { rd.allNodes[robot.getLocation().x][robot.getLocation().y-1],
-                                  rd.allNodes[robot.getLocation().x+1][robot.getLocation().y],
-                                  rd.allNodes[robot.getLocation().x][robot.getLocation().y+1],
-                                  rd.allNodes[robot.getLocation().x-1][robot.getLocation().y]
-                                };
-    for (int x = 0; x < 4; x++)
-      if (options[x].Equals(next))
-        return x + IRobot.NORTH;
-
-    //Next node is not a neighbour
-    return 0;
+    return getHeadingToNeighbour(rd.node(robot.getLocation().x, robot.getLocation().y), next);
   }
 
-  private int getHeadingToNeighbour (Node current, Node next) {
+  private int getHeadingToNeighbour (int current, int next) {
     //Find the heading which leads to the neighbour node given in params
     //from the current node given in params.
-    Node[] options = new Node[] { rd.allNodes[current.x][current.y-1],
-                                  rd.allNodes[current.x+1][current.y],
-                                  rd.allNodes[current.x][current.y+1],
-                                  rd.allNodes[current.x-1][current.y]
-                                };
-    for (int x = 0; x < 4; x++)
-      if (options[x].Equals(next))
-        return x + IRobot.NORTH;
+    for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++)
+      if (next != -1 && rd.neighbour(current, heading) == next)
+        return heading;
 
     //Next node is not a neighbour
     return 0;
@@ -258,67 +278,226 @@ public class GrandFinale {
   }
 
   class RobotData {
+    //Everything about a node is kept in arrays indexed by the node number
+    //(x*height + y), which is just 12 bytes a tile and no objects at all. The arrays
+    //start as all 0 so the values are stored plus one, with 0 meaning "not set":
+    //  g      - steps from the start + 1, 0 is infinity (not reached yet)
+    //  parent - parent node + 1, 0 is no parent
+    //  heap   - position in the open set heap + 1, 0 is not in the open set
+    //  onPath - only used while planning a trip in planTravel()
     List<Integer> path;
-    Node[][] allNodes;
-    List<Node> closedNodes;
-    List<Node> openNodes;
+    int width, height;
+    int targetX, targetY;
+    int[] g;
+    int[] parent;
+    int[] heap;
+    int[] onPath;
+    BitSet closedNodes;
+    OpenSet openNodes;
+
+    //The headings for the trip to travelTarget, worked out by planTravel()
+    int[] travel = new int[64];
+    int[] pathNodes = new int[64];
+    int travelLength = 0;
+    int travelStep = 0;
+    int travelTarget = -1;
 
     public RobotData (IRobot robot) {
       //Set default values and create empty lists.
-      allNodes = new Node[401][401];
+      Maze maze = robot.getMaze();
+      width = maze.getWidth();
+      height = maze.getHeight();
+      targetX = robot.getTargetLocation().x;
+      targetY = robot.getTargetLocation().y;
+
+      g = new int[width*height];
+      parent = new int[width*height];
+      heap = new int[width*height];
+      onPath = new int[width*height];
       path = new ArrayList<> ();
-      openNodes = new ArrayList<> ();
-      closedNodes = new ArrayList<> ();
-
-      //Create the grid of nodes, and assign the heuristic values h as the distance between
-      //the node and the target as the crow flies, ignoring any walls between the two.
-      //Distance just calculated by pythagorus theorem.
-      for (int x = 0; x < 401; x++)
-        for (int y = 0; y < 401; y++)
-          allNodes [x][y] = new Node (x, y, Math.sqrt(Math.pow(robot.getTargetLocation().x - x, 2) + Math.pow(robot.getTargetLocation().y - y, 2)));
+      openNodes = new OpenSet (this);
+      closedNodes = new BitSet (width*height);
+    }
+
+    public int node (int x, int y) {
+      return x*height + y;
+    }
+
+    public int x (int node) {
+      return node / height;
+    }
+
+    public int y (int node) {
+      return node % height;
+    }
+
+    public int neighbour (int node, int heading) {
+      switch (heading) {
+        case IRobot.NORTH: return node - 1;
+        case IRobot.EAST: return node + height;
+        case IRobot.SOUTH: return node + 1;
+        default: return node - height;
+      }
+    }
+
+    public int getG (int node) {
+      return g[node] == 0 ? Integer.MAX_VALUE : g[node] - 1;
+    }
+
+    public void setG (int node, int value) {
+      g[node] = value + 1;
     }
 
-    public void createPath (Node finalNode) {
+    public int getParent (int node) {
+      return parent[node] - 1;
+    }
+
+    public void setParent (int node, int value) {
+      parent[node] = value + 1;
+    }
+
+    //The heuristic h is the distance between the node and the target as the crow
+    //flies, ignoring any walls between the two. Distance just calculated by
+    //pythagorus theorem. Only needed when a node goes in the open set.
+    public double h (int node) {
+      double dx = targetX - x(node);
+      double dy = targetY - y(node);
+      return Math.sqrt(dx*dx + dy*dy);
+    }
+
+    public void createPath (int finalNode) {
       //Go through the list of nodes on the path from target to start and create a list of
       //headings needed in order to follow that path.
 
       path.clear();
 
       do {
-        path.add(getHeadingToNeighbour(finalNode.parent, finalNode));
-        finalNode = finalNode.parent;
-      } while (finalNode.parent != null);
+        path.add(getHeadingToNeighbour(getParent(finalNode), finalNode));
+        finalNode = getParent(finalNode);
+      } while (getParent(finalNode) != -1);
 
       //Reverse the list as they are backwards.
       Collections.reverse(path);
     }
   }
 
-  class Node {
-    int x, y;
-    Node parent;
-    int g;
-    double h;
-
-    public Node (int posX, int posY, double nH) {
-      x = posX;
-      y = posY;
-      g = (int) Double.POSITIVE_INFINITY;
-      h = nH;
-      parent = null;
+  class OpenSet {
+    //Binary min-heap of the open nodes. Each node knows where it is in the heap
+    //(RobotData.heap) so checking if a node is open is O(1), and when its g goes
+    //down it can be moved up the heap from where it is (decrease-key) rather than
+    //searched for. Adding, removing and decreasing are all O(log n).
+    //
+    //The f value (g + WEIGHT*h) of each entry is stored next to it so h is only
+    //worked out once per node. Nodes with the same f are taken in the order they
+    //were first added, which is the order the old list scan picked them in.
+    static final double WEIGHT = 1.4;
+
+    private RobotData data;
+    private int[] nodes = new int[64];
+    private double[] f = new double[64];
+    private double[] h = new double[64];
+    private int[] order = new int[64];
+    private int size = 0;
+    private int added = 0;
+
+    public OpenSet (RobotData data) {
+      this.data = data;
+    }
+
+    public int size () {
+      return size;
+    }
+
+    public int peek () {
+      return nodes[0];
+    }
+
+    public boolean contains (int node) {
+      return data.heap[node] != 0;
+    }
+
+    public void add (int node) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size*2);
+        f = Arrays.copyOf(f, size*2);
+        h = Arrays.copyOf(h, size*2);
+        order = Arrays.copyOf(order, size*2);
+      }
+      nodes[size] = node;
+      h[size] = data.h(node);
+      f[size] = data.getG(node) + WEIGHT*h[size];
+      order[size] = added++;
+      data.heap[node] = size + 1;
+      siftUp(size++);
+    }
+
+    //Call after lowering the g of a node already in the heap
+    public void decreased (int node) {
+      int i = data.heap[node] - 1;
+      f[i] = data.getG(node) + WEIGHT*h[i];
+      siftUp(i);
+    }
+
+    public void remove (int node) {
+      int i = data.heap[node] - 1;
+      data.heap[node] = 0;
+      size--;
+      if (i == size)
+        return;
+
+      move(size, i);
+      siftDown(i);
+      siftUp(i);
+    }
+
+    private boolean lower (int a, int b) {
+      if (f[a] != f[b])
+        return f[a] < f[b];
+      return order[a] < order[b];
+    }
+
+    private void swap (int a, int b) {
+      int node = nodes[a];
+      double nodeF = f[a], nodeH = h[a];
+      int nodeOrder = order[a];
+      move(b, a);
+      nodes[b] = node;
+      f[b] = nodeF;
+      h[b] = nodeH;
+      order[b] = nodeOrder;
+      data.heap[node] = b + 1;
     }
 
-    //Used when checking the robots position in the maze corresponds to this node.
-    public boolean Equals (int X, int Y) {
-      return (X == x && Y == y);
+    private void move (int from, int to) {
+      nodes[to] = nodes[from];
+      f[to] = f[from];
+      h[to] = h[from];
+      order[to] = order[from];
+      data.heap[nodes[to]] = to + 1;
     }
 
-    //In this program, if this return true, the actual objects will also be identical
-    //with the same memory address, however in the interest of extendibility and
-    //good coding practices, I have used this method anyway which checks the position
-    //values of the nodes are the same, not just whether or not the reference addresses are.
-    public boolean Equals (Node n) {
-      return (n.x == x && n.y == y);
+    private void siftUp (int i) {
+      while (i > 0) {
+        int parent = (i - 1) >> 1;
+        if (!lower(i, parent))
+          break;
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown (int i) {
+      while (true) {
+        int child = 2*i + 1;
+        if (child >= size)
+          break;
+        if (child + 1 < size && lower(child + 1, child))
+          child++;
+        if (!lower(child, i))
+          break;
+        swap(i, child);
+        i = child;
+      }
     }
   }
 }
@@ -126,7 +126,7 @@ public class GrandFinaleV1 {
       }
 
     //If there are non-beenbefore passages, randomly choose between those.
-    return passages[(int) Math.floor(Math.random() * passagePointer)];
+    return passages[(int) Math.floor(MazeRandom.nextDouble() * passagePointer)];
   }
 
   private int convertHeadingToDirection (IRobot robot, int heading) {
@@ -0,0 +1,62 @@
+/*
+  SensorSnapshot.java
+
+  PREAMBLE
+  The CourseworkFiles copy of RoboMaze2's SensorSnapshot, so the controllers here
+  still build and load with nothing but the jar. What is around the robot at the
+  start of a poll, read once: Ex1-Ex3 each ask nonwallExits(), then passageExits(),
+  then junctionControl() about the same 4 tiles, every one of them calling
+  robot.look() in all 4 directions, which is up to 16 looks a poll.
+
+  A controller keeps one SensorSnapshot and calls update() at the start of each
+  poll, after anything that turns the robot. That is 4 look() calls (the RoboMaze2
+  one can use IFastRobot.lookAll() instead, which isnt in the jar). After that,
+  until the robot turns:
+    - look() gives the same IRobot.WALL/PASSAGE/BEENBEFORE a robot.look() would
+    - nonwallExits(), passageExits(), beenbeforeExits() are counts of them
+
+  The tiles are kept by direction with AHEAD at [0], RIGHT [1], BEHIND [2] and
+  LEFT [3]. Nothing is allocated after the snapshot is made.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+
+public class SensorSnapshot {
+  private final int[] tiles = new int[4];
+  private int walls = 0;
+  private int passages = 0;
+  private int beenbefores = 0;
+
+  public void update (IRobot robot) {
+    walls = 0;
+    passages = 0;
+    beenbefores = 0;
+    for (int i = 0; i < 4; i++) {
+      tiles[i] = robot.look(IRobot.AHEAD + i);
+      switch (tiles[i]) {
+        case IRobot.PASSAGE: passages++;
+          break;
+        case IRobot.BEENBEFORE: beenbefores++;
+          break;
+        default: walls++;
+          break;
+      }
+    }
+  }
+
+  public int look (int direction) {
+    return tiles[direction - IRobot.AHEAD];
+  }
+
+  public int nonwallExits () {
+    return 4 - walls;
+  }
+
+  public int passageExits () {
+    return passages;
+  }
+
+  public int beenbeforeExits () {
+    return beenbefores;
+  }
+}
@@ -1,11 +1,16 @@
 import uk.ac.warwick.dcs.maze.logic.IRobot;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Explorer {
   private int[] allDirections = new int[] {IRobot.AHEAD, IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND};
+  private SensorSnapshot sensors = new SensorSnapshot();
   private int pollRun = 0;
   private RobotData robotData;
 
   public void controlRobot(IRobot robot) {
+    sensors.update(robot);
     int exits = nonwallExits(robot);
     int direction = 0;
 
@@ -28,7 +33,7 @@ public class Explorer {
   private int deadendControl (IRobot robot) {
     //Search through the 4 surrounding tiles and return the first one which is not a wall
     for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
+      if (sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -38,7 +43,7 @@ public class Explorer {
   private int corridorControl (IRobot robot) {
     //Travel forwards, or turn left or right if at corner
     for (int dir : allDirections)
-      if (dir != IRobot.BEHIND && robot.look(dir) != IRobot.WALL)
+      if (dir != IRobot.BEHIND && sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -51,9 +56,9 @@ public class Explorer {
     List<Integer> passages = new ArrayList<>();
     List<Integer> beenbefores = new ArrayList<>();
     for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE)
+      if (sensors.look(dir) == IRobot.PASSAGE)
         passages.add(dir);
-      else if (robot.look(dir) == IRobot.BEENBEFORE)
+      else if (sensors.look(dir) == IRobot.BEENBEFORE)
         beenbefores.add(dir);
 
     //Check if this is a new junction before traversing it
@@ -62,23 +67,22 @@ public class Explorer {
       recordJunction(robot);
     else if (passages.size() == 0) {
       //Backtrack through the junction into the direction the junction was originally found from
-      return convertHeadingToDirection(robot, robotData.arrivedFroms[findIndexOfJunction(new int[] {robot.getLocation().x, robot.getLocation().y})]);
-
-
+      return convertHeadingToDirection(robot, robotData.arrivedFroms[findIndexOfJunction(robot.getLocation().x, robot.getLocation().y)]);
+    }
 
     //If there are non-beenbefore passages, randomly choose between those.
     //If not randomly choose between the beenbefores.
     if (passages.size() > 0)
-      return passages.get ((int) Math.floor(Math.random() * passages.size()));
+      return passages.get ((int) Math.floor(MazeRandom.nextDouble() * passages.size()));
     else
-      return beenbefores.get ((int) Math.floor(Math.random() * beenbefores.size()));
+      return beenbefores.get ((int) Math.floor(MazeRandom.nextDouble() * beenbefores.size()));
   }
 
-  private int findIndexOfJunction (int[] coords) {
-    for (int i = 0; i < robotData.junctions.length; i++) {
-      if (robotData.junctions[i][0] == coords[0] && robotData.junctions[i][1] == coords[1])
-        return i;
-    }
+  private int findIndexOfJunction (int x, int y) {
+    int i = robotData.lookup(x, y);
+    //The row may have been reused by a later junction since (x, y) was recorded
+    if (i != -1 && robotData.junctionXs[i] == x && robotData.junctionYs[i] == y)
+      return i;
 
     //Should never be reached
     return -1;
@@ -138,19 +142,16 @@ public class Explorer {
 
     System.out.println(
       "Junction " + robotData.junctionCounter + ": (" +
-      robotData.junctions[robotData.junctionCounter][0] +
-      ", " + robotData.junctions[robotData.junctionCounter][1] +
+      robotData.junctionXs[robotData.junctionCounter] +
+      ", " + robotData.junctionYs[robotData.junctionCounter] +
       ") from " + heading
     );
   }
 
   private void recordJunction(IRobot robot) {
-    //Add x,y vector to the list of junction positions
-    robotData.junctions[robotData.junctionCounter] = new int[] {robot.getLocation().x, robot.getLocation().y};
-
-    //Get the heading equivilent to BEHIND as that is where robot came from
+    //Add x,y to the junction positions, with the heading equivilent to BEHIND as that is where robot came from
     int heading = convertDirectionToHeading(robot, IRobot.BEHIND);
-    robotData.arrivedFroms[robotData.junctionCounter] = heading;
+    robotData.addJunction(robot.getLocation().x, robot.getLocation().y, heading);
 
     if (convertHeadingToDirection (robot, heading) != IRobot.BEHIND)
       System.out.println ("BROKEN");
@@ -161,36 +162,15 @@ public class Explorer {
   }
 
   private int nonwallExits (IRobot robot) {
-    //Count the number of surrounding tiles are not WALLs
-    int count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
-        count++;
-
-    //Return the count value
-    return count;
+    return sensors.nonwallExits();
   }
 
   private int passageExits (IRobot robot) {
-    //Count the number of surrounding tiles are PASSAGEs
-    int count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE)
-        count++;
-
-    //Return the count value
-    return count;
+    return sensors.passageExits();
   }
 
   private int beenbeforeExits (IRobot robot) {
-    //Count the number of surrounding tiles are BEENBEFOREs
-    int count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.BEENBEFORE)
-        count++;
-
-    //Return the count value
-    return count;
+    return sensors.beenbeforeExits();
   }
 
   public void reset() {
@@ -198,12 +178,76 @@ public class Explorer {
   }
 
   private class RobotData {
+    //Junction rows are numbered by junctionCounter and kept as columns that grow as
+    //more junctions are found. The row of the junction at (x, y) is found through an
+    //open addressing hash table keyed on (x << 16) | y, so backtracking doesnt go
+    //through every row. Rows are reused from the start after a reset, and the table
+    //just points at whichever row (x, y) was last recorded in.
     public int junctionCounter = 0;
-    public int[][] junctions = new int[200*200][2];
-    public int[] arrivedFroms = new int[200*200];
+    public int[] junctionXs = new int[64];
+    public int[] junctionYs = new int[64];
+    public int[] arrivedFroms = new int[64];
+
+    //Hash table slots hold key + 1 (0 is an empty slot) and the row
+    private int[] keys = new int[128];
+    private int[] slotRows = new int[128];
+    private int keyCount = 0;
 
     public void resetJunctionCounter() {
       junctionCounter = 0;
     }
+
+    public void addJunction (int x, int y, int arrivedFrom) {
+      if (junctionCounter == arrivedFroms.length) {
+        junctionXs = Arrays.copyOf(junctionXs, junctionCounter*2);
+        junctionYs = Arrays.copyOf(junctionYs, junctionCounter*2);
+        arrivedFroms = Arrays.copyOf(arrivedFroms, junctionCounter*2);
+      }
+      junctionXs[junctionCounter] = x;
+      junctionYs[junctionCounter] = y;
+      arrivedFroms[junctionCounter] = arrivedFrom;
+
+      //Keep the table at most half full
+      if ((keyCount + 1)*2 > keys.length)
+        rehash(keys.length*2);
+      put((x << 16) | y, junctionCounter);
+    }
+
+    public int lookup (int x, int y) {
+      int key = (x << 16) | y;
+      int mask = keys.length - 1;
+      for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+        if (keys[i] == key + 1)
+          return slotRows[i];
+      return -1;
+    }
+
+    private void put (int key, int row) {
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (keys[i] != 0 && keys[i] != key + 1)
+        i = (i + 1) & mask;
+      if (keys[i] == 0)
+        keyCount++;
+      keys[i] = key + 1;
+      slotRows[i] = row;
+    }
+
+    private void rehash (int size) {
+      int[] oldKeys = keys;
+      int[] oldRows = slotRows;
+      keys = new int[size];
+      slotRows = new int[size];
+      keyCount = 0;
+      for (int i = 0; i < oldKeys.length; i++)
+        if (oldKeys[i] != 0)
+          put(oldKeys[i] - 1, oldRows[i]);
+    }
+
+    private int hash (int key) {
+      //Spread the bits so neighbouring junctions dont all land in neighbouring slots
+      int h = key * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
   }
 }
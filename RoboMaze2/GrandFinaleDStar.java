@@ -0,0 +1,298 @@
+/*
+  GrandFinaleDStar.java
+
+  D* Lite (Incremental replanning design)
+  GrandFinale (A*) only ever plans over tiles it has already stood on, so to try the
+  next best node it has to physically walk back to wherever that node is. This
+  controller works the other way around. It assumes every tile it hasnt seen yet is
+  a passage, plans the shortest route from the robot to the target over that
+  optimistic map, and walks it. Whenever a wall is seen where the map said there was
+  a passage the plan is repaired and the robot carries on from where it is.
+
+  The plan is kept with D* Lite (Koenig and Likhachev), which searches backwards from
+  the target so the g value of a tile is its distance to the target. When a wall
+  turns up only the tiles whose distance actually changes are looked at again, so
+  a repair near the robot costs about as much as the part of the route it changes
+  rather than a whole new search. The robot then just moves to the neighbour with
+  the lowest g.
+
+  Walls seen are remembered between runs, so each run is at least as short as the
+  last and once the route has been walked without seeing any new walls it is the
+  shortest route there is through the tiles seen so far.
+
+  Each poll:
+    - Look in all four headings and mark any new walls
+    - If there were new walls, add the distance moved since the last repair to km
+    (so old queue keys stay valid without redoing them) and update the tiles around
+    each new wall
+    - Let the search settle (computeShortestPath)
+    - Move to the open neighbour with the lowest g
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import java.util.Arrays;
+
+public class GrandFinaleDStar {
+  private static final int INFINITY = Integer.MAX_VALUE / 4;
+
+  private RobotData rd;
+  private int pollRun = 0;
+
+  public void controlRobot (IRobot robot) {
+    if (pollRun == 0 && robot.getRuns() == 0)
+      rd = new RobotData(robot);
+
+    int current = rd.node(robot.getLocation().x, robot.getLocation().y);
+    rd.start = current;
+
+    //Look around and put any new walls into the map
+    boolean changed = false;
+    for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++) {
+      int n = rd.neighbour(current, heading);
+      if (n != -1 && !rd.blocked[n] && lookHeading(robot, heading) == IRobot.WALL) {
+        if (!changed) {
+          rd.km += rd.h(rd.last, current);
+          rd.last = current;
+          changed = true;
+        }
+        rd.blocked[n] = true;
+        updateAround(n);
+      }
+    }
+
+    computeShortestPath();
+
+    //Move to the neighbour that is closest to the target
+    int bestHeading = 0;
+    int bestG = INFINITY;
+    for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++) {
+      int n = rd.neighbour(current, heading);
+      if (n != -1 && !rd.blocked[n] && rd.g[n] < bestG) {
+        bestG = rd.g[n];
+        bestHeading = heading;
+      }
+    }
+
+    pollRun++;
+    robot.setHeading(bestHeading);
+  }
+
+  public void reset () {
+    pollRun = 0;
+  }
+
+  //The tile and all of its neighbours may have a different best distance now
+  private void updateAround (int node) {
+    updateVertex(node);
+    for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++) {
+      int n = rd.neighbour(node, heading);
+      if (n != -1)
+        updateVertex(n);
+    }
+  }
+
+  private void updateVertex (int node) {
+    if (node != rd.goal) {
+      int best = INFINITY;
+      if (!rd.blocked[node]) {
+        for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++) {
+          int n = rd.neighbour(node, heading);
+          if (n != -1 && !rd.blocked[n] && rd.g[n] + 1 < best)
+            best = rd.g[n] + 1;
+        }
+      }
+      rd.rhs[node] = best;
+    }
+
+    if (rd.queue.contains(node))
+      rd.queue.remove(node);
+    if (rd.g[node] != rd.rhs[node])
+      rd.queue.add(node, calculateKey(node));
+  }
+
+  private void computeShortestPath () {
+    while (rd.queue.size() > 0 && (rd.queue.topKey() < calculateKey(rd.start) || rd.rhs[rd.start] != rd.g[rd.start])) {
+      int node = rd.queue.top();
+      long oldKey = rd.queue.topKey();
+      long newKey = calculateKey(node);
+
+      if (oldKey < newKey) {
+        //The key is out of date from an earlier km, put it back in the right place
+        rd.queue.remove(node);
+        rd.queue.add(node, newKey);
+      } else if (rd.g[node] > rd.rhs[node]) {
+        //Now know a shorter distance for this tile, pass it on to the neighbours
+        rd.g[node] = rd.rhs[node];
+        rd.queue.remove(node);
+        for (int heading = IRobot.NORTH; heading <= IRobot.WEST; heading++) {
+          int n = rd.neighbour(node, heading);
+          if (n != -1)
+            updateVertex(n);
+        }
+      } else {
+        //The tile got further away (a wall went up), start it again from scratch
+        rd.g[node] = INFINITY;
+        updateAround(node);
+      }
+    }
+  }
+
+  //The two parts of the D* Lite key packed into one long so they compare in the right order
+  private long calculateKey (int node) {
+    int k2 = Math.min(rd.g[node], rd.rhs[node]);
+    long k1 = (long) k2 + rd.h(rd.start, node) + rd.km;
+    return (k1 << 32) | k2;
+  }
+
+  private int lookHeading (IRobot robot, int heading) {
+    //Same as in GrandFinale, turn the heading into a direction relative to the robot
+    int direction = (heading - robot.getHeading() + 4) % 4;
+    return robot.look(direction + IRobot.AHEAD);
+  }
+
+  class RobotData {
+    //The map is indexed by node number (x*height + y) like GrandFinale.
+    //  blocked - a wall has been seen here
+    //  g       - distance to the target as far as the search has got
+    //  rhs     - one step look ahead of g, the search is settled where g == rhs
+    int width, height;
+    int goal;
+    int start;
+    int last;
+    int km = 0;
+    boolean[] blocked;
+    int[] g;
+    int[] rhs;
+    Queue queue;
+
+    public RobotData (IRobot robot) {
+      Maze maze = robot.getMaze();
+      width = maze.getWidth();
+      height = maze.getHeight();
+      goal = node(robot.getTargetLocation().x, robot.getTargetLocation().y);
+      start = node(robot.getLocation().x, robot.getLocation().y);
+      last = start;
+
+      blocked = new boolean[width*height];
+      g = new int[width*height];
+      rhs = new int[width*height];
+      Arrays.fill(g, INFINITY);
+      Arrays.fill(rhs, INFINITY);
+      queue = new Queue(width*height);
+
+      rhs[goal] = 0;
+      queue.add(goal, ((long) h(start, goal) << 32));
+    }
+
+    public int node (int x, int y) {
+      return x*height + y;
+    }
+
+    //The node next to this one in the given heading, or -1 if that is off the maze
+    public int neighbour (int node, int heading) {
+      int x = node / height;
+      int y = node % height;
+      switch (heading) {
+        case IRobot.NORTH: return y > 0 ? node - 1 : -1;
+        case IRobot.EAST: return x < width - 1 ? node + height : -1;
+        case IRobot.SOUTH: return y < height - 1 ? node + 1 : -1;
+        default: return x > 0 ? node - height : -1;
+      }
+    }
+
+    //Manhattan distance, never more than the real number of steps
+    public int h (int a, int b) {
+      return Math.abs(a / height - b / height) + Math.abs(a % height - b % height);
+    }
+  }
+
+  class Queue {
+    //Binary min-heap of nodes on their packed keys, with each nodes position in the
+    //heap kept (plus one, 0 is not in the heap) so it can be found and removed in O(log n).
+    private int[] nodes = new int[64];
+    private long[] keys = new long[64];
+    private int[] position;
+    private int size = 0;
+
+    public Queue (int nodeCount) {
+      position = new int[nodeCount];
+    }
+
+    public int size () {
+      return size;
+    }
+
+    public int top () {
+      return nodes[0];
+    }
+
+    public long topKey () {
+      return keys[0];
+    }
+
+    public boolean contains (int node) {
+      return position[node] != 0;
+    }
+
+    public void add (int node, long key) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size*2);
+        keys = Arrays.copyOf(keys, size*2);
+      }
+      nodes[size] = node;
+      keys[size] = key;
+      position[node] = size + 1;
+      siftUp(size++);
+    }
+
+    public void remove (int node) {
+      int i = position[node] - 1;
+      position[node] = 0;
+      size--;
+      if (i == size)
+        return;
+
+      nodes[i] = nodes[size];
+      keys[i] = keys[size];
+      position[nodes[i]] = i + 1;
+      siftDown(i);
+      siftUp(i);
+    }
+
+    private void swap (int a, int b) {
+      int node = nodes[a];
+      long key = keys[a];
+      nodes[a] = nodes[b];
+      keys[a] = keys[b];
+      nodes[b] = node;
+      keys[b] = key;
+      position[nodes[a]] = a + 1;
+      position[nodes[b]] = b + 1;
+    }
+
+    private void siftUp (int i) {
+      while (i > 0) {
+        int parent = (i - 1) >> 1;
+        if (keys[i] >= keys[parent])
+          break;
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown (int i) {
+      while (true) {
+        int child = 2*i + 1;
+        if (child >= size)
+          break;
+        if (child + 1 < size && keys[child + 1] < keys[child])
+          child++;
+        if (keys[child] >= keys[i])
+          break;
+        swap(i, child);
+        i = child;
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+  GrandFinaleGraph.java
+
+  Junction graph (Corridor contracted design)
+  Explores and plans on a JunctionGraph rather than on tiles. Between junctions the
+  robot just follows the corridor, so the only decisions (and the only searching)
+  happen at junctions and deadends, and the searches are over a graph a fraction
+  of the size of the maze.
+
+  At a vertex:
+    - On the first run, if there is a corridor here that hasnt been walked, take it
+    (the one that starts closest to the target). If not, head for the nearest vertex
+    that has one. Once the target has been reached the run is over.
+    - On later runs, or once there is nothing left to explore, take the shortest
+    route through the graph to the target.
+
+  Like GrandFinaleV1 the route used after the first run is only as good as the
+  corridors walked on it, but in a loopy maze every corridor near the route has
+  usually been walked by then so it is close to the shortest.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+
+public class GrandFinaleGraph {
+  private JunctionGraph graph;
+  private int pollRun = 0;
+
+  public void controlRobot (IRobot robot) {
+    if (pollRun == 0) {
+      if (robot.getRuns() == 0) {
+        Maze maze = robot.getMaze();
+        graph = new JunctionGraph(maze.getWidth(), maze.getHeight());
+      }
+      graph.restart();
+    }
+
+    int vertex = graph.visit(robot);
+    pollRun++;
+
+    if (vertex == -1) {
+      robot.face(corridorControl(robot));
+      return;
+    }
+
+    int heading = 0;
+    int target = graph.vertexAt(robot.getTargetLocation().x, robot.getTargetLocation().y);
+    if (target != -1 && robot.getRuns() > 0)
+      heading = graph.headingTowards(vertex, target);
+    if (heading == 0)
+      heading = exploreHeading(robot, vertex);
+    if (heading == 0 && target != -1)
+      heading = graph.headingTowards(vertex, target);
+    if (heading == 0)
+      //Nothing known, just go anywhere that isnt a wall
+      for (int h = IRobot.NORTH; h <= IRobot.WEST && heading == 0; h++)
+        if (graph.isOpen(vertex, h))
+          heading = h;
+
+    robot.setHeading(heading);
+  }
+
+  public void reset () {
+    pollRun = 0;
+  }
+
+  private int exploreHeading (IRobot robot, int vertex) {
+    //Take the unwalked corridor here that starts closest to the target
+    int best = 0;
+    int bestDistance = Integer.MAX_VALUE;
+    for (int h = IRobot.NORTH; h <= IRobot.WEST; h++) {
+      if (graph.isOpen(vertex, h) && !graph.isExplored(vertex, h)) {
+        int x = robot.getLocation().x + (h == IRobot.EAST ? 1 : h == IRobot.WEST ? -1 : 0);
+        int y = robot.getLocation().y + (h == IRobot.SOUTH ? 1 : h == IRobot.NORTH ? -1 : 0);
+        int distance = Math.abs(robot.getTargetLocation().x - x) + Math.abs(robot.getTargetLocation().y - y);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          best = h;
+        }
+      }
+    }
+    if (best != 0)
+      return best;
+
+    //If not, go towards the closest junction which has one
+    int next = graph.nearestUnexplored(vertex);
+    return next == -1 ? 0 : graph.headingTowards(vertex, next);
+  }
+
+  private int corridorControl (IRobot robot) {
+    //Travel forwards, or turn left or right if at corner
+    for (int dir : new int[] {IRobot.AHEAD, IRobot.LEFT, IRobot.RIGHT})
+      if (robot.look(dir) != IRobot.WALL)
+        return dir;
+    return IRobot.BEHIND;
+  }
+}
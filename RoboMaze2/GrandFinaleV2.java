@@ -5,6 +5,7 @@
 */
 
 import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
 import java.text.MessageFormat;
 
 public class GrandFinaleV2 {
@@ -18,7 +19,7 @@ public class GrandFinaleV2 {
 
     if (pollRun == 0){
       if (robot.getRuns() == 0)
-        robotData = new RobotData();
+        robotData = new RobotData(robot);
       exploreMode = true;
       robot.setHeading(IRobot.SOUTH);
     }
@@ -43,8 +44,8 @@ public class GrandFinaleV2 {
       case 2: return corridorControl(robot);
       default:
         //If there is a direction to travel in from this junction saved, go that way
-        if (robotData.junctions[robot.getLocation().x][robot.getLocation().y][1] > 0 && Math.floor(Math.random() * chance) > 0)
-          return convertHeadingToDirection(robot, robotData.junctions[robot.getLocation().x][robot.getLocation().y][1]);
+        if (robotData.getBest(robot) > 0 && Math.floor(MazeRandom.nextDouble() * chance) > 0)
+          return convertHeadingToDirection(robot, robotData.getBest(robot));
 
           //If not record the junction as brand new
           recordJunction(robot);
@@ -52,8 +53,8 @@ public class GrandFinaleV2 {
         //If can explore, then explore
         if (passageExits(robot) > 0) {
           //Record the direction travelling in from this junction
-          robotData.junctions[robot.getLocation().x][robot.getLocation().y][2] = convertDirectionToHeading(robot, junctionControl(robot));
-          return convertHeadingToDirection(robot, robotData.junctions[robot.getLocation().x][robot.getLocation().y][2]);
+          robotData.setCurrent(robot, convertDirectionToHeading(robot, junctionControl(robot)));
+          return convertHeadingToDirection(robot, robotData.getCurrent(robot));
         }
 
         //If not, start backtracking
@@ -71,8 +72,8 @@ public class GrandFinaleV2 {
         if (passageExits(robot) > 0) {
           //Go back into exploreMode and act as normal. Overwrite the direction travelling from from this junction
           exploreMode = true;
-          robotData.junctions[robot.getLocation().x][robot.getLocation().y][2] = convertDirectionToHeading(robot, junctionControl(robot));
-          return convertHeadingToDirection(robot, robotData.junctions[robot.getLocation().x][robot.getLocation().y][2]);
+          robotData.setCurrent(robot, convertDirectionToHeading(robot, junctionControl(robot)));
+          return convertHeadingToDirection(robot, robotData.getCurrent(robot));
         }
 
         //Backtrack through the junction into the direction the junction was originally found from
@@ -82,8 +83,8 @@ public class GrandFinaleV2 {
 
   private int backtrack (IRobot robot) {
     System.out.println ("BACKTRACKING");
-    robotData.junctions[robot.getLocation().x][robot.getLocation().y][2] = 0;
-    return convertHeadingToDirection(robot, robotData.junctions[robot.getLocation().x][robot.getLocation().y][0]);
+    robotData.setCurrent(robot, 0);
+    return convertHeadingToDirection(robot, robotData.getArrivedFrom(robot));
   }
 
   private int deadendControl (IRobot robot) {
@@ -121,7 +122,7 @@ public class GrandFinaleV2 {
       }
 
     //If there are non-beenbefore passages, randomly choose between those.
-    return passages[(int) Math.floor(Math.random() * passagePointer)];
+    return passages[(int) Math.floor(MazeRandom.nextDouble() * passagePointer)];
   }
 
   private int convertHeadingToDirection (IRobot robot, int heading) {
@@ -165,7 +166,7 @@ public class GrandFinaleV2 {
 
   private void printJunction (IRobot robot) {
     String heading = "";
-    switch (robotData.junctions[robot.getLocation().x][robot.getLocation().y][0]){
+    switch (robotData.getArrivedFrom(robot)){
       case IRobot.NORTH:  heading = "NORTH";
         break;
       case IRobot.EAST:   heading = "EAST";
@@ -181,9 +182,9 @@ public class GrandFinaleV2 {
 
   private void recordJunction(IRobot robot) {
     //Set the arrived from to the heading behind robot
-    robotData.junctions[robot.getLocation().x][robot.getLocation().y][0] = convertDirectionToHeading(robot, IRobot.BEHIND);
+    robotData.setArrivedFrom(robot, convertDirectionToHeading(robot, IRobot.BEHIND));
     //Set the left in to undecided yet
-    robotData.junctions[robot.getLocation().x][robot.getLocation().y][2] = 0;
+    robotData.setCurrent(robot, 0);
 
     //Print debug info
     //printJunction(robot);
@@ -223,9 +224,7 @@ public class GrandFinaleV2 {
   }
 
   public void setNewFastest () {
-    for (int x = 0; x < 400; x++)
-      for (int y = 0; y < 400; y++)
-        robotData.junctions[x][y][1] = robotData.junctions[x][y][2];
+    robotData.promote();
 
     robotData.lastLength = pollRun;
   }
@@ -238,11 +237,63 @@ public class GrandFinaleV2 {
   }
 
   private class RobotData {
-    public int[][][] junctions = new int[400][400][3];
+    //One flat table sized to the maze, 3 ints per cell at (x*height + y)*3:
+    //  +0 heading the junction was arrived from
+    //  +1 heading taken from it on the fastest run
+    //  +2 heading taken from it on the current run
+    //Cells whose current heading has been written since the last promotion are kept
+    //in dirtyCells, so a new fastest run only copies those across.
+    public int[] junctions;
     public int lastLength = (int) Double.POSITIVE_INFINITY;
+    private int height;
+    private boolean[] dirty;
+    private int[] dirtyCells;
+    private int dirtyCount = 0;
+
+    public RobotData (IRobot robot) {
+      Maze maze = robot.getMaze();
+      height = maze.getHeight();
+      junctions = new int[maze.getWidth()*height*3];
+      dirty = new boolean[maze.getWidth()*height];
+      dirtyCells = new int[maze.getWidth()*height];
+    }
+
+    private int cell (IRobot robot) {
+      return robot.getLocation().x*height + robot.getLocation().y;
+    }
+
+    public int getArrivedFrom (IRobot robot) {
+      return junctions[cell(robot)*3];
+    }
+
+    public void setArrivedFrom (IRobot robot, int heading) {
+      junctions[cell(robot)*3] = heading;
+    }
 
-    public RobotData () {
-      junctions = new int[400][400][3];
+    public int getBest (IRobot robot) {
+      return junctions[cell(robot)*3 + 1];
+    }
+
+    public int getCurrent (IRobot robot) {
+      return junctions[cell(robot)*3 + 2];
+    }
+
+    public void setCurrent (IRobot robot, int heading) {
+      int cell = cell(robot);
+      junctions[cell*3 + 2] = heading;
+      if (!dirty[cell]) {
+        dirty[cell] = true;
+        dirtyCells[dirtyCount++] = cell;
+      }
+    }
+
+    public void promote () {
+      for (int i = 0; i < dirtyCount; i++) {
+        int cell = dirtyCells[i];
+        junctions[cell*3 + 1] = junctions[cell*3 + 2];
+        dirty[cell] = false;
+      }
+      dirtyCount = 0;
     }
   }
 }
@@ -7,12 +7,15 @@
 
 import uk.ac.warwick.dcs.maze.logic.IRobot;
 import java.text.MessageFormat;
+import java.util.Arrays;
 
 public class GrandFinaleV3 {
   private int[] allDirections = new int[] {IRobot.AHEAD, IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND};
+  private SensorSnapshot sensors = new SensorSnapshot();
   private int pollRun = 0;
   private RobotData robotData;
   private boolean exploreMode = true;
+  private int followCounter = 0;
 
   public void controlRobot(IRobot robot) {
     int direction = 0;
@@ -24,6 +27,7 @@ public class GrandFinaleV3 {
       robot.setHeading(IRobot.SOUTH);
     }
 
+    sensors.update(robot);
     direction = exploreMode ? exploreControl(robot) : backtrackControl(robot);
 
     //Make sure starts in explore mode even if started in a deadend
@@ -44,10 +48,10 @@ public class GrandFinaleV3 {
       case 2: return corridorControl(robot);
       default:
         //If there is a direction to travel in from this junction saved, go that way
-        if (robotData.junctionCounter == followCounter && robotData.junctions[robotData.junctionCounter+1][1] >= IRobot.NORTH) {
-          if (Math.floor(Math.random() * chance) > 0) {
+        if (robotData.junctionCounter == followCounter && robotData.getBest(robotData.junctionCounter+1) >= IRobot.NORTH) {
+          if (Math.floor(MazeRandom.nextDouble() * chance) > 0) {
             followCounter++;
-            return convertHeadingToDirection(robot, robotData.junctions[++robotData.junctionCounter][1]);
+            return convertHeadingToDirection(robot, robotData.getBest(++robotData.junctionCounter));
           }
         }
 
@@ -58,10 +62,10 @@ public class GrandFinaleV3 {
         //If can explore, then explore
         if (passageExits(robot) > 0) {
           //Record the direction travelling in from this junction
-          robotData.junctions[robotData.junctionCounter][2] = convertDirectionToHeading(robot, junctionControl(robot));
-          if (robotData.junctions[robotData.junctionCounter][2] == robotData.junctions[robotData.junctionCounter][1])
+          robotData.setCurrent(robotData.junctionCounter, convertDirectionToHeading(robot, junctionControl(robot)));
+          if (robotData.getCurrent(robotData.junctionCounter) == robotData.getBest(robotData.junctionCounter))
             followCounter = robotData.junctionCounter;
-          return convertHeadingToDirection(robot, robotData.junctions[robotData.junctionCounter][2]);
+          return convertHeadingToDirection(robot, robotData.getCurrent(robotData.junctionCounter));
         }
 
         //If not, start backtracking
@@ -82,8 +86,8 @@ public class GrandFinaleV3 {
         if (passageExits(robot) > 0) {
           //Go back into exploreMode and act as normal. Overwrite the direction travelling from from this junction
           exploreMode = true;
-          robotData.junctions[robotData.junctionCounter][2] = convertDirectionToHeading(robot, junctionControl(robot));
-          return convertHeadingToDirection(robot, robotData.junctions[robotData.junctionCounter][2]);
+          robotData.setCurrent(robotData.junctionCounter, convertDirectionToHeading(robot, junctionControl(robot)));
+          return convertHeadingToDirection(robot, robotData.getCurrent(robotData.junctionCounter));
         }
 
         //Backtrack through the junction into the direction the junction was originally found from
@@ -92,8 +96,8 @@ public class GrandFinaleV3 {
   }
 
   private int backtrack (IRobot robot) {
-    robotData.junctions[robotData.junctionCounter][2] = 0;
-    return convertHeadingToDirection(robot, robotData.junctions[robotData.junctionCounter--][0]);
+    robotData.setCurrent(robotData.junctionCounter, 0);
+    return convertHeadingToDirection(robot, robotData.getArrivedFrom(robotData.junctionCounter--));
   }
 
   private int deadendControl (IRobot robot) {
@@ -102,7 +106,7 @@ public class GrandFinaleV3 {
 
     //Search through the 4 surrounding tiles and return the first one which is not a wall
     for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
+      if (sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -112,7 +116,7 @@ public class GrandFinaleV3 {
   private int corridorControl (IRobot robot) {
     //Travel forwards, or turn left or right if at corner
     for (int dir : allDirections)
-      if (dir != IRobot.BEHIND && robot.look(dir) != IRobot.WALL)
+      if (dir != IRobot.BEHIND && sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -125,13 +129,13 @@ public class GrandFinaleV3 {
     byte passagePointer = 0;
 
     for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE) {
+      if (sensors.look(dir) == IRobot.PASSAGE) {
         passages[passagePointer] = dir;
         passagePointer++;
       }
 
     //If there are non-beenbefore passages, randomly choose between those.
-    return passages[(int) Math.floor(Math.random() * passagePointer)];
+    return passages[(int) Math.floor(MazeRandom.nextDouble() * passagePointer)];
   }
 
   private int convertHeadingToDirection (IRobot robot, int heading) {
@@ -175,7 +179,7 @@ public class GrandFinaleV3 {
 
   private void printJunction () {
     String heading = "";
-    switch (robotData.junctions[robotData.junctionCounter-1][0]){
+    switch (robotData.getArrivedFrom(robotData.junctionCounter-1)){
       case IRobot.NORTH:  heading = "NORTH";
         break;
       case IRobot.EAST:   heading = "EAST";
@@ -191,39 +195,24 @@ public class GrandFinaleV3 {
 
   private void recordJunction(IRobot robot) {
     //Get the heading equivilent to BEHIND as that is where robot came from
-    robotData.junctions[++robotData.junctionCounter][0] = convertDirectionToHeading(robot, IRobot.BEHIND);
+    robotData.setArrivedFrom(++robotData.junctionCounter, convertDirectionToHeading(robot, IRobot.BEHIND));
     //Set the direction to travel from to 0 to indicate not yet decided.
-    robotData.junctions[robotData.junctionCounter][2] = 0;
+    robotData.setCurrent(robotData.junctionCounter, 0);
     //Print debug info
     //printJunction();
   }
 
   private byte nonwallExits (IRobot robot) {
-    //Count the number of surrounding tiles are not WALLs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.nonwallExits();
   }
 
   private byte passageExits (IRobot robot) {
-    //Count the number of surrounding tiles are PASSAGEs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.passageExits();
   }
 
   public void setNewFastest () {
-    for (int x = 0; x < 50000; x++)
-        robotData.junctions[x][1] = robotData.junctions[x][2];
-
+    //Every decision made up to now becomes the best route, without copying anything
+    robotData.promote();
     robotData.lastLength = robotData.junctionCounter;
   }
 
@@ -236,17 +225,71 @@ public class GrandFinaleV3 {
   }
 
   private class RobotData {
+    //Rows are indexed by junctionCounter and only grow as far as the deepest junction reached.
+    //  arrivedFrom - heading the junction was first arrived from
+    //  decisions   - two slots per row, [2j] is the newest heading chosen at junction j
+    //                and [2j+1] is the one before it
+    //  written     - the run that wrote [2j], 0 if never written
+    //A row's best heading is the newest slot written in a run up to promotedRun, so making
+    //the current run the best one is just promotedRun = run. A row only needs its older
+    //slot kept when it is about to be written again after a promotion.
     public int junctionCounter = 0;
-    public int[][] junctions = new int[50000][3];
     public int lastLength = (int) Double.POSITIVE_INFINITY;
+    private int[] arrivedFrom = new int[64];
+    private int[] decisions = new int[128];
+    private int[] written = new int[64];
+    private int run = 1;
+    private int promotedRun = 0;
 
     public RobotData () {
       junctionCounter = 0;
-      junctions = new int[50000][3];
     }
 
     public void resetJunctionCounter() {
       junctionCounter = 0;
+      run++;
+    }
+
+    public int getArrivedFrom (int junction) {
+      return junction < arrivedFrom.length ? arrivedFrom[junction] : 0;
+    }
+
+    public void setArrivedFrom (int junction, int heading) {
+      ensureCapacity(junction);
+      arrivedFrom[junction] = heading;
+    }
+
+    public int getCurrent (int junction) {
+      return junction < written.length ? decisions[2*junction] : 0;
+    }
+
+    public void setCurrent (int junction, int heading) {
+      ensureCapacity(junction);
+      //Keep the newest slot if it is part of the best route, otherwise it can just be overwritten
+      if (written[junction] <= promotedRun)
+        decisions[2*junction+1] = decisions[2*junction];
+      decisions[2*junction] = heading;
+      written[junction] = run;
+    }
+
+    public int getBest (int junction) {
+      if (junction >= written.length)
+        return 0;
+      return written[junction] <= promotedRun ? decisions[2*junction] : decisions[2*junction+1];
+    }
+
+    public void promote () {
+      promotedRun = run;
+    }
+
+    private void ensureCapacity (int junction) {
+      if (junction < written.length)
+        return;
+
+      int length = Math.max(written.length*2, junction + 1);
+      arrivedFrom = Arrays.copyOf(arrivedFrom, length);
+      decisions = Arrays.copyOf(decisions, 2*length);
+      written = Arrays.copyOf(written, length);
     }
   }
 }
@@ -1,9 +1,11 @@
 
 import uk.ac.warwick.dcs.maze.logic.IRobot;
 import java.text.MessageFormat;
+import java.util.Arrays;
 
 public class GrandFinaleV4 {
   private int[] allDirections = new int[] {IRobot.AHEAD, IRobot.LEFT, IRobot.RIGHT, IRobot.BEHIND};
+  private SensorSnapshot sensors = new SensorSnapshot();
   private int pollRun = 0;
   private RobotData robotData;
   private boolean exploreMode = true;
@@ -18,6 +20,7 @@ public class GrandFinaleV4 {
       robot.setHeading(IRobot.SOUTH);
     }
 
+    sensors.update(robot);
     direction = exploreMode ? exploreControl(robot) : backtrackControl(robot);
 
     //Make sure starts in explore mode even if started in a deadend
@@ -38,18 +41,21 @@ public class GrandFinaleV4 {
       case 2: return corridorControl(robot);
       default:
         //If there is a direction to travel in from this junction saved, go that way
-        Junction j = robotData.FindJunction(robot.getLocation().x, robot.getLocation().y);
-        if (j != null)
-          if (j.bestDirectionToGo[convertDirectionToHeading(robot, IRobot.BEHIND)-IRobot.NORTH] > 0 && Math.floor(Math.random() * chance) >= 0)
-            return convertHeadingToDirection(robot, robotData.FindJunction(robot.getLocation().x, robot.getLocation().y).bestDirectionToGo[convertDirectionToHeading(robot, IRobot.BEHIND)-IRobot.NORTH]);
+        int j = robotData.FindJunction(robot.getLocation().x, robot.getLocation().y);
+        int arrivedFrom = sensors.toHeading(IRobot.BEHIND);
+        if (j != -1) {
+          int best = robotData.GetBestDirectionToGo(j, arrivedFrom);
+          if (best > 0 && Math.floor(MazeRandom.nextDouble() * chance) >= 0)
+            return sensors.toDirection(best);
+        }
 
 
         //If can explore, then explore
         if (passageExits(robot) > 0) {
           //Record the direction travelling in from this junction
           int d = junctionControl(robot);
-          if (j == null) j = recordJunction(robot, convertDirectionToHeading(robot, IRobot.BEHIND), convertDirectionToHeading(robot, d));
-          j.SetDirectionToGo(convertDirectionToHeading(robot, IRobot.BEHIND), convertDirectionToHeading(robot, d));
+          if (j == -1) j = recordJunction(robot, arrivedFrom, sensors.toHeading(d));
+          robotData.SetDirectionToGo(j, arrivedFrom, sensors.toHeading(d));
           return d;
         }
 
@@ -69,7 +75,7 @@ public class GrandFinaleV4 {
           //Go back into exploreMode and act as normal. Overwrite the direction travelling from from this junction
           exploreMode = true;
           int d = junctionControl(robot);
-          robotData.FindJunction(robot.getLocation().x, robot.getLocation().y).SetDirectionToGo(convertDirectionToHeading(robot, IRobot.BEHIND), convertDirectionToHeading(robot, d));
+          robotData.SetDirectionToGo(robotData.FindJunction(robot.getLocation().x, robot.getLocation().y), sensors.toHeading(IRobot.BEHIND), sensors.toHeading(d));
           return d;
         }
 
@@ -81,7 +87,7 @@ public class GrandFinaleV4 {
   private int backtrack (IRobot robot) {
     System.out.println ("BACKTRACKING");
     //Direction to go when coming from the heading equivilent to BEHIND
-    return convertHeadingToDirection(robot, robotData.FindJunction(robot.getLocation().x, robot.getLocation().y).backTrackDirection);
+    return convertHeadingToDirection(robot, robotData.GetBackTrackDirection(robotData.FindJunction(robot.getLocation().x, robot.getLocation().y)));
   }
 
   private int deadendControl (IRobot robot) {
@@ -90,7 +96,7 @@ public class GrandFinaleV4 {
 
     //Search through the 4 surrounding tiles and return the first one which is not a wall
     for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
+      if (sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -100,7 +106,7 @@ public class GrandFinaleV4 {
   private int corridorControl (IRobot robot) {
     //Travel forwards, or turn left or right if at corner
     for (int dir : allDirections)
-      if (dir != IRobot.BEHIND && robot.look(dir) != IRobot.WALL)
+      if (dir != IRobot.BEHIND && sensors.look(dir) != IRobot.WALL)
         return dir;
 
     //0 only returned if error occured
@@ -113,13 +119,13 @@ public class GrandFinaleV4 {
     byte passagePointer = 0;
 
     for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE) {
+      if (sensors.look(dir) == IRobot.PASSAGE) {
         passages[passagePointer] = dir;
         passagePointer++;
       }
 
     //If there are non-beenbefore passages, randomly choose between those.
-    return passages[(int) Math.floor(Math.random() * passagePointer)];
+    return passages[(int) Math.floor(MazeRandom.nextDouble() * passagePointer)];
   }
 
   private int convertHeadingToDirection (IRobot robot, int heading) {
@@ -142,124 +148,128 @@ public class GrandFinaleV4 {
     return direction;
   }
 
-  private int convertDirectionToHeading (IRobot robot, int direction) {
-    //Reduce the numbers all down to 0, 1, 2, 3 by using the fact AHEAD and NORTH are identities
-    //and that the 4 directions and 4 headings loop round in %4
-
-    //The offset is the heading equivilent to IRobot.AHEAD
-    byte offset = (byte) (robot.getHeading() - IRobot.NORTH);
-    direction -= IRobot.AHEAD;
-
-    //The heading equivilent to the given direction is direction + offset but wrapped
-    //arround back to 0 after 3 as there is no heading 4, 5, 6, etc
-    int heading = (offset + direction) % 4;
-
-    //Convert heading back to the required constants standard
-    //eg if direction is 2: NORTH+2 => SOUTH
-    heading += IRobot.NORTH;
-
-    return heading;
-  }
-
-  private Junction recordJunction(IRobot robot, int arrivedFrom, int leftIn) {
-    Junction j = robotData.FindJunction(robot.getLocation().x, robot.getLocation().y);
-    if (j == null) {
-      j = new Junction(robot.getLocation().x, robot.getLocation().y, convertDirectionToHeading(robot, IRobot.BEHIND));
-      robotData.junctions[robotData.counter++] = j;
-    }
+  private int recordJunction(IRobot robot, int arrivedFrom, int leftIn) {
+    int j = robotData.FindJunction(robot.getLocation().x, robot.getLocation().y);
+    if (j == -1)
+      j = robotData.AddJunction(robot.getLocation().x, robot.getLocation().y, arrivedFrom);
     //Set the arrived from to the heading behind robot
-    j.SetDirectionToGo(arrivedFrom, leftIn);
+    robotData.SetDirectionToGo(j, arrivedFrom, leftIn);
 
     return j;
   }
 
   private byte nonwallExits (IRobot robot) {
-    //Count the number of surrounding tiles are not WALLs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) != IRobot.WALL)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.nonwallExits();
   }
 
   private byte passageExits (IRobot robot) {
-    //Count the number of surrounding tiles are PASSAGEs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.PASSAGE)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.passageExits();
   }
 
   private byte beenbeforeExits (IRobot robot) {
-    //Count the number of surrounding tiles are BEENBEOREs
-    byte count = 0;
-    for (int dir : allDirections)
-      if (robot.look(dir) == IRobot.BEENBEFORE)
-        count++;
-
-    //Return the count value
-    return count;
+    return (byte) sensors.beenbeforeExits();
   }
 
   public void reset() {
     if (pollRun < robotData.bestCounter) {
       robotData.bestCounter = pollRun;
       System.out.println ("SET BEST: " + pollRun);
-      for (Junction j : robotData.junctions)
-        if (j != null)
-          j.SetBestDirections();
+      robotData.SetBestDirections();
     }
-    robotData.counter = 0;
     exploreMode = true;
     pollRun = 0;
   }
 
   private class RobotData {
+    //Junctions are numbered in the order they are found and everything about them
+    //is kept in arrays indexed by that number (directions 4 to a junction, one for
+    //each heading arrived from). To find the number of the junction at (x, y) there
+    //is an open addressing hash table keyed on (x << 16) | y, so looking one up
+    //doesnt mean going through every junction found so far.
+    //
+    //Junctions stay where they are from one run to the next. Best directions are
+    //promoted by copying the whole directionToGo array over bestDirectionToGo.
     public int counter = 0;
     public int bestCounter = 1000000000;
-    public Junction[] junctions = new Junction[50000];
+    public int[] backTrackDirection = new int[64];
+    public int[] directionToGo = new int[64*4];
+    public int[] bestDirectionToGo = new int[64*4];
     public int lastLength = (int) Double.POSITIVE_INFINITY;
 
+    //Hash table slots hold key + 1 (0 is an empty slot) and the junction number
+    private int[] keys = new int[128];
+    private int[] slotJunction = new int[128];
+
     public RobotData () {
       counter = 0;
-      junctions = new Junction[50000];
     }
 
-    public Junction FindJunction (int x, int y) {
-      for (Junction j : junctions)
-        if (j == null)
-          break;
-        else if (j.position[0] == x && j.position[1] == y)
-          return j;
+    public int FindJunction (int x, int y) {
+      int key = (x << 16) | y;
+      int mask = keys.length - 1;
+      for (int i = hash(key) & mask; keys[i] != 0; i = (i + 1) & mask)
+        if (keys[i] == key + 1)
+          return slotJunction[i];
 
       //SHOULD NEVER HAPPEN
-      return null;
+      return -1;
     }
-  }
 
-  private class Junction {
-    public int[] position = new int[2];
-    public int[] directionToGo = new int[4];
-    public int[] bestDirectionToGo = new int[4];
-    public int backTrackDirection = 0;
+    public int AddJunction (int x, int y, int arrivedFrom) {
+      if (counter == backTrackDirection.length) {
+        backTrackDirection = Arrays.copyOf(backTrackDirection, counter*2);
+        directionToGo = Arrays.copyOf(directionToGo, counter*2*4);
+        bestDirectionToGo = Arrays.copyOf(bestDirectionToGo, counter*2*4);
+      }
+      //Keep the table at most half full
+      if (counter*2 >= keys.length)
+        rehash(keys.length*2);
+
+      int j = counter++;
+      backTrackDirection[j] = arrivedFrom;
+      insert((x << 16) | y, j);
+      return j;
+    }
 
-    public Junction (int x, int y, int arrivedFrom) {
-      position = new int[] {x, y};
-      backTrackDirection = arrivedFrom;
+    public void SetDirectionToGo (int j, int arrivedFrom, int leftIn) {
+      directionToGo[j*4 + arrivedFrom-IRobot.NORTH] = leftIn;
     }
 
-    public void SetDirectionToGo (int arrivedFrom, int leftIn) {
-      directionToGo[arrivedFrom-IRobot.NORTH] = leftIn;
+    public int GetBestDirectionToGo (int j, int arrivedFrom) {
+      return bestDirectionToGo[j*4 + arrivedFrom-IRobot.NORTH];
+    }
+
+    public int GetBackTrackDirection (int j) {
+      return backTrackDirection[j];
     }
 
     public void SetBestDirections () {
-      for (int x = 0; x < 4; x++)
-        bestDirectionToGo[x] = directionToGo[x];
+      System.arraycopy(directionToGo, 0, bestDirectionToGo, 0, counter*4);
+    }
+
+    private void insert (int key, int j) {
+      int mask = keys.length - 1;
+      int i = hash(key) & mask;
+      while (keys[i] != 0)
+        i = (i + 1) & mask;
+      keys[i] = key + 1;
+      slotJunction[i] = j;
+    }
+
+    private void rehash (int size) {
+      int[] oldKeys = keys;
+      int[] oldJunctions = slotJunction;
+      keys = new int[size];
+      slotJunction = new int[size];
+      for (int i = 0; i < oldKeys.length; i++)
+        if (oldKeys[i] != 0)
+          insert(oldKeys[i] - 1, oldJunctions[i]);
+    }
+
+    private int hash (int key) {
+      //Spread the bits so neighbouring junctions dont all land in neighbouring slots
+      int h = key * 0x9E3779B9;
+      return h ^ (h >>> 16);
     }
   }
 }
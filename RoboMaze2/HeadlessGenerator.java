@@ -0,0 +1,230 @@
+/*
+  HeadlessGenerator.java
+
+  PREAMBLE
+  The generators inside maze-environment.jar build a Swing config panel in their
+  constructors, so just creating a PrimGenerator pulls in the whole of AWT/Swing.
+  This is a port of the same two algorithms (PrimGenerator and LoopyGenerator)
+  with no GUI attached so that the BatchSimulator can make thousands of mazes
+  without ever touching a window toolkit.
+
+  The mazes produced follow exactly the same rules as the jar versions:
+    - The maze is (2*width+1) by (2*height+1) tiles with the start at (1, 1)
+    and the target at the opposite corner.
+    - Prim's algorithm grows the maze out from the target, picking a random
+    frontier cell each time and joining it to a random neighbour already in the maze.
+    - The loopy version then knocks out extra walls with probability 0.5 wherever
+    it would not open up a 2x2 room, and moves the target towards the centre.
+
+  The only difference is that the frontier is kept as an array with swap-remove
+  rather than a LinkedList of Points. A frontier cell is still chosen uniformly
+  at random, so the distribution of mazes is the same.
+
+  Random numbers come from MazeRandom, or from the generator given to
+  setRandom(), so the same seed makes the same mazes.
+
+  To be able to make mazes far bigger than the GUI allows, the IN/FRONTIER/OUT
+  state is kept as two bits per cell (only the odd tiles are cells, the rest are
+  the walls between them), and setPacked(true) makes it build a PackedMaze
+  instead of a normal Maze.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class HeadlessGenerator {
+  private static final int IN = 1;
+  private static final int FRONTIER = 2;
+  private static final int OUT = 3;
+
+  private static final int NORTH = 10;
+  private static final int EAST = 11;
+  private static final int SOUTH = 12;
+  private static final int WEST = 13;
+
+  private int mazeWidth = 15;
+  private int mazeHeight = 15;
+  private boolean loopy = false;
+  private boolean packed = false;
+  private SplittableRandom random = null;
+
+  private long[] inCells;
+  private long[] frontierCells;
+  private int[] frontier;
+  private int frontierSize;
+
+  public HeadlessGenerator (int width, int height, boolean loopy) {
+    this.mazeWidth = width;
+    this.mazeHeight = height;
+    this.loopy = loopy;
+  }
+
+  public void setPacked (boolean packed) {
+    this.packed = packed;
+  }
+
+  //Use this generator rather than the thread's MazeRandom one
+  public void setRandom (SplittableRandom random) {
+    this.random = random;
+  }
+
+  public Maze generateMaze () {
+    if (mazeWidth < 1 || mazeHeight < 1)
+      throw new RuntimeException("Maze too small");
+
+    int width = 2*mazeWidth + 1;
+    int height = 2*mazeHeight + 1;
+    Maze maze = packed ? new PackedMaze(width, height) : new Maze(width, height);
+    maze.setStart(1, 1);
+    maze.setFinish(width-2, height-2);
+
+    int cells = (int) (((long) mazeWidth * mazeHeight + 63) >>> 6);
+    inCells = new long[cells];
+    frontierCells = new long[cells];
+    frontier = new int[16];
+    frontierSize = 0;
+
+    //Start growing the maze from the target corner
+    int x = width - 2;
+    int y = height - 2;
+    setPrimCellType(maze, x, y, IN);
+    if (x > 1) setPrimCellType(maze, x-2, y, FRONTIER);
+    if (y > 1) setPrimCellType(maze, x, y-2, FRONTIER);
+    if (x < width-2) setPrimCellType(maze, x+2, y, FRONTIER);
+    if (y < height-2) setPrimCellType(maze, x, y+2, FRONTIER);
+
+    int[] options = new int[4];
+    while (frontierSize > 0) {
+      //Take a random cell off the frontier and add it to the maze
+      int index = randomInt(frontierSize);
+      int cell = frontier[index];
+      frontier[index] = frontier[--frontierSize];
+      x = 2*(cell / mazeHeight) + 1;
+      y = 2*(cell % mazeHeight) + 1;
+      setPrimCellType(maze, x, y, IN);
+
+      //Any neighbours not yet seen become part of the frontier
+      if (x > 1 && primAt(x-2, y) == OUT) setPrimCellType(maze, x-2, y, FRONTIER);
+      if (y > 1 && primAt(x, y-2) == OUT) setPrimCellType(maze, x, y-2, FRONTIER);
+      if (x < width-2 && primAt(x+2, y) == OUT) setPrimCellType(maze, x+2, y, FRONTIER);
+      if (y < height-2 && primAt(x, y+2) == OUT) setPrimCellType(maze, x, y+2, FRONTIER);
+
+      //Knock through to one of the neighbours already in the maze
+      int optionCount = 0;
+      if (x-2 > 0 && primAt(x-2, y) == IN) options[optionCount++] = WEST;
+      if (y-2 > 0 && primAt(x, y-2) == IN) options[optionCount++] = NORTH;
+      if (x < width-2 && primAt(x+2, y) == IN) options[optionCount++] = EAST;
+      if (y < height-2 && primAt(x, y+2) == IN) options[optionCount++] = SOUTH;
+
+      switch (options[randomInt(optionCount)]) {
+        case NORTH: maze.setCellType(x, y-1, Maze.PASSAGE);
+          break;
+        case EAST: maze.setCellType(x+1, y, Maze.PASSAGE);
+          break;
+        case SOUTH: maze.setCellType(x, y+1, Maze.PASSAGE);
+          break;
+        case WEST: maze.setCellType(x-1, y, Maze.PASSAGE);
+          break;
+      }
+    }
+
+    //Let the grid be collected before the maze is used
+    inCells = null;
+    frontierCells = null;
+    frontier = null;
+
+    if (loopy)
+      addLoops(maze);
+
+    return maze;
+  }
+
+  private void addLoops (Maze maze) {
+    for (int x = 1; x < maze.getWidth()-1; x++)
+      for (int y = 1; y < maze.getHeight()-1; y++)
+        if (isValid(maze, x, y) && getWalls(maze, x, y) < 3 && random() > 0.5)
+          maze.setCellType(x, y, Maze.PASSAGE);
+
+    centerTarget(maze);
+  }
+
+  private boolean isValid (Maze maze, int x, int y) {
+    //Opening this tile is only valid if it doesnt create a 2x2 open room
+    for (int a = x-1; a <= x; a++)
+      for (int b = y-1; b <= y; b++) {
+        boolean open = true;
+        for (int i = a; i <= a+1; i++)
+          for (int j = b; j <= b+1; j++)
+            if (maze.getCellType(i, j) == Maze.WALL && (i != x || j != y))
+              open = false;
+        if (open)
+          return false;
+      }
+
+    return true;
+  }
+
+  private int getWalls (Maze maze, int x, int y) {
+    int walls = 0;
+    for (int i = x-1; i <= x+1; i += 2)
+      if (maze.getCellType(i, y) == Maze.WALL)
+        walls++;
+    for (int j = y-1; j <= y+1; j += 2)
+      if (maze.getCellType(x, j) == Maze.WALL)
+        walls++;
+
+    return walls;
+  }
+
+  private void centerTarget (Maze maze) {
+    int x = maze.getWidth() / 2;
+    int y = maze.getHeight() / 2;
+
+    //Wander away from the centre until a passage is found
+    while (maze.getCellType(x, y) != Maze.PASSAGE)
+      if (random() > 0.5)
+        x = (x+1) % maze.getWidth();
+      else
+        y = (y+1) % maze.getHeight();
+
+    maze.setFinish(x, y);
+  }
+
+  private int primAt (int x, int y) {
+    int cell = cellIndex(x, y);
+    if ((inCells[cell >>> 6] & (1L << cell)) != 0)
+      return IN;
+    if ((frontierCells[cell >>> 6] & (1L << cell)) != 0)
+      return FRONTIER;
+    return OUT;
+  }
+
+  private void setPrimCellType (Maze maze, int x, int y, int type) {
+    int cell = cellIndex(x, y);
+    if (type == IN) {
+      maze.setCellType(x, y, Maze.PASSAGE);
+      inCells[cell >>> 6] |= 1L << cell;
+      frontierCells[cell >>> 6] &= ~(1L << cell);
+    }
+    if (type == FRONTIER) {
+      if (frontierSize == frontier.length)
+        frontier = Arrays.copyOf(frontier, frontierSize * 2);
+      frontier[frontierSize++] = cell;
+      frontierCells[cell >>> 6] |= 1L << cell;
+    }
+  }
+
+  private int cellIndex (int x, int y) {
+    //Cells are only on the odd tiles
+    return (x >> 1) * mazeHeight + (y >> 1);
+  }
+
+  private int randomInt (int max) {
+    return (int) Math.floor(max * random());
+  }
+
+  private double random () {
+    return random != null ? random.nextDouble() : MazeRandom.nextDouble();
+  }
+}
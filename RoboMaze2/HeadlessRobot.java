@@ -0,0 +1,226 @@
+/*
+  HeadlessRobot.java
+
+  PREAMBLE
+  A robot for running controllers outside of the GUI. It behaves the same as the
+  RobotImpl inside maze-environment.jar as far as a controller can tell (same
+  headings, same look() results, same BEENBEFORE tracking, same runs counter) but
+  it never broadcasts anything on the EventBus. In RobotImpl even moving the robot
+  goes through the bus, as advance() broadcasts a ROBOT_RELOCATE event which the
+  robot then receives back in notify(). Here the position is just two ints.
+
+  The simulation loop (see BatchSimulator) is expected to call advance() after
+  each poll of the controller, the same as PolledControllerWrapper does, and
+  reset() at the end of each run.
+
+  Anything that wants to watch the robot (eg. a GUI) can be given the moves
+  through a ConcurrentEventBus with setEventBus(). It gets the same ROBOT_RELOCATE,
+  ROBOT_COLLISION and ROBOT_REPORT events as RobotImpl sends, but the robot never
+  has to wait on the jar's synchronized EventBus to send them.
+
+  The BEENBEFORE tiles are kept in a VisitedTracker (1 bit per tile) so that,
+  together with a PackedMaze, very large mazes fit in memory.
+
+  It also implements IFastRobot, and look() is worked out from lookAll() so
+  that sensing never makes any objects. Only getLocation() and
+  getTargetLocation() still allocate, as IRobot says they must return a Point.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.Event;
+import uk.ac.warwick.dcs.maze.logic.IEvent;
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import uk.ac.warwick.dcs.maze.logic.RobotReport;
+import java.awt.Point;
+
+public class HeadlessRobot implements IFastRobot {
+  private Maze maze;
+  private int x, y;
+  private int targetX, targetY;
+  private int heading = IRobot.EAST;
+  private VisitedTracker trackerGrid;
+  private long steps = 0;
+  private long collisions = 0;
+  private int runs = 0;
+  private ConcurrentEventBus eventBus = null;
+
+  public HeadlessRobot (Maze maze) {
+    setMaze(maze);
+  }
+
+  public void setMaze (Maze maze) {
+    this.maze = maze;
+    x = maze.getStart().x;
+    y = maze.getStart().y;
+    targetX = maze.getFinish().x;
+    targetY = maze.getFinish().y;
+    runs = 0;
+    steps = 0;
+    collisions = 0;
+
+    trackerGrid = new VisitedTracker(maze.getWidth(), maze.getHeight());
+    trackerGrid.visit(x, y);
+  }
+
+  public void setEventBus (ConcurrentEventBus eventBus) {
+    this.eventBus = eventBus;
+  }
+
+  public ConcurrentEventBus getEventBus () {
+    return eventBus;
+  }
+
+  public Maze getMaze () {
+    return maze;
+  }
+
+  public int look (int direction) throws RuntimeException {
+    if (direction < IRobot.AHEAD || direction > IRobot.LEFT)
+      throw new RuntimeException("The robot can only look AHEAD, BEHIND, LEFT and RIGHT.");
+
+    //Same trick as RobotImpl, the heading and direction offsets line up mod 4
+    return IFastRobot.cellType(lookAll(), (heading + direction) % 4 + IRobot.NORTH);
+  }
+
+  public int lookAll () {
+    return lookCode(x, y-1)
+         | lookCode(x+1, y) << 2
+         | lookCode(x, y+1) << 4
+         | lookCode(x-1, y) << 6;
+  }
+
+  private int lookCode (int lookX, int lookY) {
+    //Only passages can have been visited, so check the maze first
+    if (maze.getCellType(lookX, lookY) != Maze.PASSAGE)
+      return IFastRobot.LOOK_WALL;
+    return trackerGrid.isVisited(lookX, lookY) ? IFastRobot.LOOK_BEENBEFORE : IFastRobot.LOOK_PASSAGE;
+  }
+
+  public void face (int direction) throws RuntimeException {
+    if (direction < IRobot.AHEAD || direction > IRobot.LEFT)
+      throw new RuntimeException("The robot can only face AHEAD, BEHIND, LEFT and RIGHT.");
+
+    switch (direction) {
+      case IRobot.RIGHT: heading = (heading + 1) % 4 + IRobot.NORTH;
+        break;
+      case IRobot.BEHIND: heading = (heading + 2) % 4 + IRobot.NORTH;
+        break;
+      case IRobot.LEFT: heading = (heading + 3) % 4 + IRobot.NORTH;
+        break;
+    }
+  }
+
+  public void setHeading (int heading) throws RuntimeException {
+    if (heading < IRobot.NORTH || heading > IRobot.WEST)
+      throw new RuntimeException("The robot's heading can only be NORTH, SOUTH, EAST or WEST.");
+    this.heading = heading;
+  }
+
+  public int getHeading () {
+    return heading;
+  }
+
+  public Point getLocation () {
+    return new Point(x, y);
+  }
+
+  public Point getTargetLocation () {
+    return new Point(targetX, targetY);
+  }
+
+  public int getX () {
+    return x;
+  }
+
+  public int getY () {
+    return y;
+  }
+
+  public int getTargetX () {
+    return targetX;
+  }
+
+  public int getTargetY () {
+    return targetY;
+  }
+
+  public void sleep (int millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  public int getRuns () {
+    return runs;
+  }
+
+  public long getSteps () {
+    return steps;
+  }
+
+  public long getCollisions () {
+    return collisions;
+  }
+
+  public boolean atTarget () {
+    return x == targetX && y == targetY;
+  }
+
+  public void advance () throws RuntimeException {
+    int newX = x;
+    int newY = y;
+    switch (heading) {
+      case IRobot.NORTH: newY--;
+        break;
+      case IRobot.EAST: newX++;
+        break;
+      case IRobot.SOUTH: newY++;
+        break;
+      case IRobot.WEST: newX--;
+        break;
+    }
+
+    if (newX < 0 || newY < 0 || newX >= maze.getWidth() || newY >= maze.getHeight())
+      throw new RuntimeException("Robot cannot advance off the edge of the maze!");
+
+    if (maze.getCellType(newX, newY) == Maze.PASSAGE) {
+      steps++;
+      x = newX;
+      y = newY;
+      trackerGrid.visit(x, y);
+      if (eventBus != null)
+        eventBus.broadcast(new Event(IEvent.ROBOT_RELOCATE, new Point(x, y)));
+    } else {
+      collisions++;
+      if (eventBus != null)
+        eventBus.broadcast(new Event(IEvent.ROBOT_COLLISION, new Point(newX, newY)));
+    }
+  }
+
+  public RobotReport reset () {
+    //Build the report for the run just finished before clearing anything
+    RobotReport report = new RobotReport();
+    report.setRunNumber(runs);
+    report.setSteps(steps);
+    report.setCollisions(collisions);
+    report.setGoalReached(atTarget());
+
+    trackerGrid.clear();
+
+    x = maze.getStart().x;
+    y = maze.getStart().y;
+    trackerGrid.visit(x, y);
+    steps = 0;
+    collisions = 0;
+    runs++;
+
+    if (eventBus != null) {
+      eventBus.broadcast(new Event(IEvent.ROBOT_RELOCATE, new Point(x, y)));
+      eventBus.broadcast(new Event(IEvent.ROBOT_REPORT, report));
+    }
+
+    return report;
+  }
+}
@@ -0,0 +1,17 @@
+/*
+  IEventBatchClient.java
+
+  PREAMBLE
+  An IEventClient which can take a whole batch of events in one go. When one of
+  these is added to a ConcurrentEventBus in batching mode, everything that built up
+  in its queue since it last ran is handed over in a single notifyBatch() call
+  (in the order they were broadcast) rather than one notify() per event.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IEvent;
+import uk.ac.warwick.dcs.maze.logic.IEventClient;
+import java.util.List;
+
+public interface IEventBatchClient extends IEventClient {
+  public void notifyBatch(List<IEvent> events);
+}
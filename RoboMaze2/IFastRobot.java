@@ -0,0 +1,51 @@
+/*
+  IFastRobot.java
+
+  PREAMBLE
+  An extension of IRobot for controllers that need to sense a lot every poll.
+  The normal IRobot methods all hand back new java.awt.Point objects (getLocation,
+  getTargetLocation) and RobotImpl.look() makes four more Points internally every
+  time it is called. A controller looking in all 4 directions 3 times a poll was
+  making most of the garbage in a run.
+
+  This adds:
+    - getX(), getY(), getTargetX(), getTargetY() as plain ints
+    - lookAll() which returns what is in all 4 neighbouring tiles packed into one int
+
+  The packed value from lookAll() holds 2 bits per tile in the order of the
+  absolute headings, so NORTH is bits 0-1, EAST bits 2-3, SOUTH bits 4-5 and WEST
+  bits 6-7. Use cellType() to pull one of them back out as the usual
+  IRobot.WALL/PASSAGE/BEENBEFORE constant. It is by heading rather than direction
+  so that it stays the same whichever way the robot is facing.
+
+  Controllers should still take an IRobot and check "robot instanceof IFastRobot"
+  so they keep working with the RobotImpl used by the GUI.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+
+public interface IFastRobot extends IRobot {
+  public static final int LOOK_WALL = 0;
+  public static final int LOOK_PASSAGE = 1;
+  public static final int LOOK_BEENBEFORE = 2;
+
+  public int getX();
+  public int getY();
+  public int getTargetX();
+  public int getTargetY();
+  public int lookAll();
+
+  //Get the 2 bit code for the tile in the given heading out of a lookAll() value
+  public static int lookCode (int packed, int heading) {
+    return (packed >>> ((heading - IRobot.NORTH) << 1)) & 3;
+  }
+
+  //Get the IRobot tile constant for the tile in the given heading out of a lookAll() value
+  public static int cellType (int packed, int heading) {
+    switch (lookCode(packed, heading)) {
+      case LOOK_PASSAGE: return IRobot.PASSAGE;
+      case LOOK_BEENBEFORE: return IRobot.BEENBEFORE;
+      default: return IRobot.WALL;
+    }
+  }
+}
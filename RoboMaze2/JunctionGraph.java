@@ -0,0 +1,286 @@
+/*
+  JunctionGraph.java
+
+  PREAMBLE
+  A map of the maze built up while the robot moves, where only the junctions and
+  deadends are kept and each corridor between two of them is a single edge with
+  its length in steps. A perfect 200x200 maze has 40,000 tiles but only a few
+  thousand junctions and deadends, and a loopy one not many more, so searching the
+  graph is far cheaper than searching every tile like GrandFinale does.
+
+  A controller calls visit() on every poll. It works out from the robot's position
+  whether it has moved, counts the steps along the current corridor and when it
+  gets to a tile that isnt a plain corridor (anything without exactly 2 exits, plus
+  the start and the target) it makes that a vertex and adds the edge it just
+  walked. If the robot jumps to a tile that isnt next to the last one (a new run)
+  the walk starts again from there, and restart() does the same for controllers
+  that know a new run has begun. Turning round in a corridor just comes back
+  to the vertex it left by the same heading, which is not kept as an edge.
+
+  Everything is in int arrays:
+    vertexOf    - tile (x*height + y) to vertex id + 1, 0 is not a vertex
+    cells       - vertex id to tile
+    exits       - bit (heading - NORTH) set for each heading that isnt a wall
+    edgeTo      - [id*4 + heading - NORTH] the vertex id + 1 at the other end of the
+                  corridor leaving that way, 0 if it hasnt been walked yet
+    edgeLength  - the steps along that corridor (the shortest if walked more than once)
+
+  headingTowards() and nearestUnexplored() run Dijkstra over the graph with a heap
+  of packed (distance, vertex) longs, so a search allocates nothing once the
+  arrays have grown to the size of the graph.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import java.util.Arrays;
+
+public class JunctionGraph {
+  private static final int INFINITY = Integer.MAX_VALUE;
+
+  private final int height;
+  private final int[] vertexOf;
+  private int[] cells = new int[64];
+  private int[] exits = new int[64];
+  private int[] edgeTo = new int[64*4];
+  private int[] edgeLength = new int[64*4];
+  private int count = 0;
+
+  //The walk since the last vertex
+  private int lastCell = -1;
+  private int lastVertex = -1;
+  private int leftHeading = 0;
+  private int steps = 0;
+
+  //Dijkstra state, indexed by vertex id
+  private int[] distance = new int[64];
+  private int[] parent = new int[64];
+  private int[] parentHeading = new int[64];
+  private long[] heap = new long[64];
+  private int heapSize = 0;
+
+  public JunctionGraph (int width, int height) {
+    this.height = height;
+    vertexOf = new int[width*height];
+  }
+
+  //Record where the robot is now. Returns the vertex it is on, or -1 if it is part way along a corridor
+  public int visit (IRobot robot) {
+    int cell = node(robot.getLocation().x, robot.getLocation().y);
+    if (cell == lastCell)
+      return vertexOf[cell] - 1;
+
+    int heading = lastCell == -1 ? 0 : headingBetween(lastCell, cell);
+    if (heading == 0) {
+      //First call or a jump back to the start, begin a new walk here
+      lastVertex = -1;
+      steps = 0;
+    } else {
+      if (lastVertex != -1 && lastCell == cells[lastVertex])
+        leftHeading = heading;
+      steps++;
+    }
+
+    int from = lastCell;
+    lastCell = cell;
+
+    int open = 0;
+    for (int h = IRobot.NORTH; h <= IRobot.WEST; h++)
+      if (lookHeading(robot, h) != IRobot.WALL)
+        open |= 1 << (h - IRobot.NORTH);
+
+    boolean endpoint = lastVertex == -1 || (robot.getLocation().x == robot.getTargetLocation().x && robot.getLocation().y == robot.getTargetLocation().y);
+    if (Integer.bitCount(open) == 2 && !endpoint && vertexOf[cell] == 0)
+      return -1;
+
+    int vertex = vertexOf[cell] == 0 ? addVertex(cell, open) : vertexOf[cell] - 1;
+    if (lastVertex != -1 && steps > 0)
+      connect(lastVertex, leftHeading, vertex, headingBetween(cell, from), steps);
+
+    lastVertex = vertex;
+    leftHeading = 0;
+    steps = 0;
+    return vertex;
+  }
+
+  //Start a new walk from wherever the robot is next, call when the robot is put back at the start
+  public void restart () {
+    lastCell = -1;
+  }
+
+  public int size () {
+    return count;
+  }
+
+  public int vertexAt (int x, int y) {
+    return vertexOf[node(x, y)] - 1;
+  }
+
+  public boolean isOpen (int vertex, int heading) {
+    return (exits[vertex] & (1 << (heading - IRobot.NORTH))) != 0;
+  }
+
+  public boolean isExplored (int vertex, int heading) {
+    return edgeTo[vertex*4 + heading - IRobot.NORTH] != 0;
+  }
+
+  //The vertex at the other end of the corridor leaving this way, or -1 if it hasnt been walked
+  public int getEdgeTo (int vertex, int heading) {
+    return edgeTo[vertex*4 + heading - IRobot.NORTH] - 1;
+  }
+
+  public int getEdgeLength (int vertex, int heading) {
+    return edgeLength[vertex*4 + heading - IRobot.NORTH];
+  }
+
+  //True if the vertex has an open heading no corridor has been walked along yet
+  public boolean hasUnexplored (int vertex) {
+    for (int h = IRobot.NORTH; h <= IRobot.WEST; h++)
+      if (isOpen(vertex, h) && !isExplored(vertex, h))
+        return true;
+    return false;
+  }
+
+  //The heading to leave from on the shortest known route to to, or 0 if there isnt one
+  public int headingTowards (int from, int to) {
+    if (from == to || search(from, to) == -1)
+      return 0;
+    return firstHeading(from, to);
+  }
+
+  //The closest vertex (by steps) that still has a corridor to walk, or -1 if there are none
+  public int nearestUnexplored (int from) {
+    return search(from, -1);
+  }
+
+  //Steps to the vertex found by the last headingTowards() or nearestUnexplored()
+  public int getDistance (int vertex) {
+    return distance[vertex];
+  }
+
+  private int addVertex (int cell, int open) {
+    if (count == cells.length) {
+      int length = count*2;
+      cells = Arrays.copyOf(cells, length);
+      exits = Arrays.copyOf(exits, length);
+      edgeTo = Arrays.copyOf(edgeTo, length*4);
+      edgeLength = Arrays.copyOf(edgeLength, length*4);
+      distance = Arrays.copyOf(distance, length);
+      parent = Arrays.copyOf(parent, length);
+      parentHeading = Arrays.copyOf(parentHeading, length);
+    }
+
+    cells[count] = cell;
+    exits[count] = open;
+    vertexOf[cell] = count + 1;
+    return count++;
+  }
+
+  private void connect (int a, int aHeading, int b, int bHeading, int length) {
+    //Turned round in the corridor and came back the way it went
+    if (a == b && aHeading == bHeading)
+      return;
+
+    int ai = a*4 + aHeading - IRobot.NORTH;
+    int bi = b*4 + bHeading - IRobot.NORTH;
+    if (edgeTo[ai] == 0 || length < edgeLength[ai]) {
+      edgeTo[ai] = b + 1;
+      edgeLength[ai] = length;
+    }
+    if (edgeTo[bi] == 0 || length < edgeLength[bi]) {
+      edgeTo[bi] = a + 1;
+      edgeLength[bi] = length;
+    }
+  }
+
+  //Dijkstra from from until to is settled (or, with to == -1, until a vertex with
+  //somewhere left to explore is). Returns the vertex settled, or -1.
+  private int search (int from, int to) {
+    Arrays.fill(distance, 0, count, INFINITY);
+    heapSize = 0;
+    distance[from] = 0;
+    parent[from] = -1;
+    push(0, from);
+
+    while (heapSize > 0) {
+      long top = pop();
+      int vertex = (int) top;
+      int d = (int) (top >>> 32);
+      if (d > distance[vertex])
+        continue;
+      if (vertex == to || (to == -1 && hasUnexplored(vertex)))
+        return vertex;
+
+      for (int h = IRobot.NORTH; h <= IRobot.WEST; h++) {
+        int next = getEdgeTo(vertex, h);
+        if (next == -1)
+          continue;
+        int nd = d + getEdgeLength(vertex, h);
+        if (nd < distance[next]) {
+          distance[next] = nd;
+          parent[next] = vertex;
+          parentHeading[next] = h;
+          push(nd, next);
+        }
+      }
+    }
+    return -1;
+  }
+
+  private int firstHeading (int from, int to) {
+    int vertex = to;
+    while (parent[vertex] != from)
+      vertex = parent[vertex];
+    return parentHeading[vertex];
+  }
+
+  private void push (int d, int vertex) {
+    if (heapSize == heap.length)
+      heap = Arrays.copyOf(heap, heapSize*2);
+    int i = heapSize++;
+    heap[i] = ((long) d << 32) | vertex;
+    while (i > 0 && heap[(i - 1) >> 1] > heap[i]) {
+      long swap = heap[i];
+      heap[i] = heap[(i - 1) >> 1];
+      heap[(i - 1) >> 1] = swap;
+      i = (i - 1) >> 1;
+    }
+  }
+
+  private long pop () {
+    long top = heap[0];
+    heap[0] = heap[--heapSize];
+    int i = 0;
+    while (true) {
+      int child = 2*i + 1;
+      if (child >= heapSize)
+        break;
+      if (child + 1 < heapSize && heap[child + 1] < heap[child])
+        child++;
+      if (heap[child] >= heap[i])
+        break;
+      long swap = heap[i];
+      heap[i] = heap[child];
+      heap[child] = swap;
+      i = child;
+    }
+    return top;
+  }
+
+  private int node (int x, int y) {
+    return x*height + y;
+  }
+
+  //The heading that goes from tile a to tile b, or 0 if they arent next to each other
+  private int headingBetween (int a, int b) {
+    if (b == a - 1 && a % height != 0) return IRobot.NORTH;
+    if (b == a + height) return IRobot.EAST;
+    if (b == a + 1 && b % height != 0) return IRobot.SOUTH;
+    if (b == a - height) return IRobot.WEST;
+    return 0;
+  }
+
+  private int lookHeading (IRobot robot, int heading) {
+    //Same as in GrandFinale, turn the heading into a direction relative to the robot
+    int direction = (heading - robot.getHeading() + 4) % 4;
+    return robot.look(direction + IRobot.AHEAD);
+  }
+}
@@ -0,0 +1,64 @@
+/*
+  MazeRandom.java
+
+  PREAMBLE
+  Where the controllers and the HeadlessGenerator get their random numbers from
+  instead of Math.random(). Math.random() is one java.util.Random shared by the
+  whole JVM, so with ParallelEvaluator running a controller on every core all of
+  them fight over the one seed (it is updated with a compare-and-set), and it cant
+  be seeded so a run that went badly cant be run again to see why.
+
+  Each thread has its own SplittableRandom here, so nothing is shared, and
+  nextDouble() can be used anywhere Math.random() was as it gives a double in
+  [0, 1) the same way. Anything running a simulation can put its own generator
+  in place for the thread with set() (and put the old one back with set() when it
+  is done). BatchSimulator gives every maze a generator split off its own, and
+  ParallelEvaluator splits one for each task in maze order before they start, so
+  the same seed gives the same mazes and the same moves whichever thread each
+  maze ends up on.
+
+  With -Drobomaze.seed=<long> every thread that hasnt been given a generator
+  gets one split off a generator with that seed, in the order the threads first
+  ask for one. root() gives a new generator with that seed, or an unseeded one
+  without the property, for the mains to split from.
+*/
+
+import java.util.SplittableRandom;
+
+public class MazeRandom {
+  public static final String PROPERTY = "robomaze.seed";
+
+  private static final SplittableRandom shared = root();
+  private static final ThreadLocal<SplittableRandom> current = ThreadLocal.withInitial(MazeRandom::split);
+
+  //A new generator seeded from the robomaze.seed property if it is set
+  public static SplittableRandom root () {
+    String seed = System.getProperty(PROPERTY);
+    return seed == null ? new SplittableRandom() : new SplittableRandom(Long.parseLong(seed));
+  }
+
+  private static SplittableRandom split () {
+    //SplittableRandom isnt thread safe, only this one is ever shared
+    synchronized (shared) {
+      return shared.split();
+    }
+  }
+
+  public static SplittableRandom get () {
+    return current.get();
+  }
+
+  public static void set (SplittableRandom random) {
+    current.set(random);
+  }
+
+  //A double in [0, 1), for anywhere that used Math.random()
+  public static double nextDouble () {
+    return current.get().nextDouble();
+  }
+
+  //An int in [0, bound)
+  public static int nextInt (int bound) {
+    return current.get().nextInt(bound);
+  }
+}
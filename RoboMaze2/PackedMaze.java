@@ -0,0 +1,156 @@
+/*
+  PackedMaze.java
+
+  PREAMBLE
+  A Maze that stores each tile as a single bit. The jar's Maze keeps an int[][]
+  grid, so a tile costs 4 bytes plus a separate row array for every column, and
+  RobotImpl adds another boolean[][] for the BEENBEFORE tiles on top. That is fine
+  for the 200x200 mazes the GUI can make but a 20,000x20,000 maze would need
+  around 2GB.
+
+  Here the tiles are bits in one long[] (1 = PASSAGE, 0 = WALL, so a new maze is
+  all walls like the normal Maze) and the BEENBEFORE tiles go in a VisitedTracker
+  of the same shape. Both together come to under 100MB at 20,000x20,000.
+
+  It extends Maze and overrides getCellType, setCellType, toggleCellType, getWidth,
+  getHeight and writeToFile, so anything that takes a Maze (controllers calling
+  robot.getMaze(), the HeadlessRobot, the loopy pass of the generator) works with
+  it unchanged. The int[][] in the Maze superclass is only ever 1x1.
+
+  A PackedMaze can be frozen with freeze(), after which anything that would change
+  it throws an UnsupportedOperationException. A frozen maze is safe to share
+  between robots running on different threads (see ParallelEvaluator) as long as
+  it was frozen before they were started. snapshot() makes a frozen copy of any Maze.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+public class PackedMaze extends Maze {
+  private final int width;
+  private final int height;
+  private final long[] passages;
+  private boolean frozen = false;
+
+  public PackedMaze (int width, int height) {
+    super(1, 1);
+    this.width = width;
+    this.height = height;
+    passages = new long[(int) (((long) width * height + 63) >>> 6)];
+  }
+
+  //Copy a normal Maze into the packed layout
+  public static PackedMaze from (Maze maze) {
+    PackedMaze packed = new PackedMaze(maze.getWidth(), maze.getHeight());
+    for (int x = 0; x < maze.getWidth(); x++)
+      for (int y = 0; y < maze.getHeight(); y++)
+        packed.setCellType(x, y, maze.getCellType(x, y));
+    packed.setStart(maze.getStart().x, maze.getStart().y);
+    packed.setFinish(maze.getFinish().x, maze.getFinish().y);
+    return packed;
+  }
+
+  //Make a read only copy of a maze to share between threads
+  public static PackedMaze snapshot (Maze maze) {
+    PackedMaze packed = from(maze);
+    packed.freeze();
+    return packed;
+  }
+
+  public void freeze () {
+    frozen = true;
+  }
+
+  public boolean isFrozen () {
+    return frozen;
+  }
+
+  public int getWidth () {
+    return width;
+  }
+
+  public int getHeight () {
+    return height;
+  }
+
+  public int getCellType (int x, int y) {
+    return isPassage(x, y) ? Maze.PASSAGE : Maze.WALL;
+  }
+
+  public boolean isPassage (int x, int y) {
+    long index = index(x, y);
+    return (passages[(int) (index >>> 6)] & (1L << index)) != 0;
+  }
+
+  public void setCellType (int x, int y, int type) {
+    checkNotFrozen();
+    long index = index(x, y);
+    if (type == Maze.PASSAGE)
+      passages[(int) (index >>> 6)] |= 1L << index;
+    else
+      passages[(int) (index >>> 6)] &= ~(1L << index);
+  }
+
+  public void toggleCellType (int x, int y) {
+    checkNotFrozen();
+    long index = index(x, y);
+    passages[(int) (index >>> 6)] ^= 1L << index;
+  }
+
+  public void setStart (int x, int y) {
+    checkNotFrozen();
+    super.setStart(x, y);
+  }
+
+  public void setFinish (int x, int y) {
+    checkNotFrozen();
+    super.setFinish(x, y);
+  }
+
+  public void writeToFile (File file, IRobot robot) throws Exception {
+    //Same format as Maze.writeToFile so the GUI can load it back in
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      out.write(("Type: WarwickMaze\nVersion: 1.0\nWidth: " + width + "\nHeight: " + height + "\nHeaderEnd\n").getBytes("US-ASCII"));
+
+      int startChar = '^';
+      if (robot != null)
+        switch (robot.getHeading()) {
+          case IRobot.EAST: startChar = '>';
+            break;
+          case IRobot.SOUTH: startChar = 'v';
+            break;
+          case IRobot.WEST: startChar = '<';
+            break;
+        }
+
+      int startX = getStart().x, startY = getStart().y;
+      int finishX = getFinish().x, finishY = getFinish().y;
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          int c = isPassage(x, y) ? '.' : '#';
+          if (x == startX && y == startY)
+            c = startChar;
+          if (x == finishX && y == finishY)
+            c = 'F';
+          out.write(c);
+        }
+        out.write('\n');
+      }
+    }
+  }
+
+  private void checkNotFrozen () {
+    if (frozen)
+      throw new UnsupportedOperationException("This maze has been frozen and cannot be changed");
+  }
+
+  private long index (int x, int y) {
+    if (x < 0 || y < 0 || x >= width || y >= height)
+      throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is outside the maze");
+    return (long) x * height + y;
+  }
+}
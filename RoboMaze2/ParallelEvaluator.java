@@ -0,0 +1,148 @@
+/*
+  ParallelEvaluator.java
+
+  PREAMBLE
+  Runs several controllers over the same set of mazes using every core, for
+  comparing versions of a controller against each other.
+
+  The mazes are all made first (HeadlessGenerator is not thread safe) and each is
+  frozen with PackedMaze.snapshot(), so nothing can change it once the robots start.
+  Then every controller/maze pair becomes one task on a ForkJoinPool. A task is a
+  BatchSimulator of its own with a fresh HeadlessRobot and a fresh controller, so
+  the only thing shared between threads is the frozen maze. The BEENBEFORE tiles
+  and the run count belong to each robot, the same as with one robot at a time.
+
+  The totals for each controller are added up from its tasks at the end. With
+  setMetricsSink() every run is also written out as it finishes, numbered by the
+  maze's position in the set so the controllers can be compared maze by maze.
+
+  Each task's BatchSimulator is given a SplittableRandom split off the evaluator's
+  one (see setRandom()) before any of them are started, in maze order, so which
+  thread a maze runs on makes no difference to its random numbers. With
+  -Drobomaze.seed=<long> an evaluation can be run again move for move.
+
+  Controllers that keep things in static fields will interfere with each other when
+  run like this. None of the ones in this folder do. ControlTest from RoboMaze1 is
+  safe to share as its counts are LongAdders, but its printResults() clears them, so
+  read them with ControlTest.snapshot(false) once the evaluation is done instead.
+
+  Usage:
+    java -cp maze-environment.jar:. ParallelEvaluator <mazes> <runs> <size> <loopy> <Controller> [Controller...]
+
+  eg. java -cp maze-environment.jar:. ParallelEvaluator 1000 10 25 true GrandFinaleV2 GrandFinaleV4
+*/
+
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class ParallelEvaluator {
+  private List<Maze> mazes = new ArrayList<>();
+  private int runsPerMaze;
+  private long maxPolls;
+  private ForkJoinPool pool;
+  private RunMetricsSink metrics = null;
+  private SplittableRandom random = MazeRandom.root();
+
+  public ParallelEvaluator (int runsPerMaze, long maxPolls, int threads) {
+    this.runsPerMaze = runsPerMaze;
+    this.maxPolls = maxPolls;
+    pool = new ForkJoinPool(threads);
+  }
+
+  public void addMaze (Maze maze) {
+    if (maze instanceof PackedMaze && ((PackedMaze) maze).isFrozen())
+      mazes.add(maze);
+    else
+      mazes.add(PackedMaze.snapshot(maze));
+  }
+
+  public void setMetricsSink (RunMetricsSink metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setRandom (SplittableRandom random) {
+    this.random = random;
+  }
+
+  public int getMazeCount () {
+    return mazes.size();
+  }
+
+  //Runs the controller over every maze in parallel, one result per maze
+  public BatchSimulator[] evaluate (Class<?> controllerClass) throws Exception {
+    List<ForkJoinTask<BatchSimulator>> tasks = new ArrayList<>(mazes.size());
+    for (int m = 0; m < mazes.size(); m++) {
+      Maze maze = mazes.get(m);
+      int mazeId = m;
+      SplittableRandom taskRandom = random.split();
+      tasks.add(pool.submit(() -> {
+        BatchSimulator sim = new BatchSimulator(controllerClass, null, runsPerMaze, maxPolls);
+        sim.setMetricsSink(metrics);
+        sim.setRandom(taskRandom);
+        sim.runMaze(maze, mazeId);
+        return sim;
+      }));
+    }
+
+    BatchSimulator[] results = new BatchSimulator[tasks.size()];
+    for (int i = 0; i < results.length; i++)
+      results[i] = tasks.get(i).join();
+    return results;
+  }
+
+  public void shutdown () {
+    pool.shutdown();
+  }
+
+  public static void main (String[] args) throws Exception {
+    if (args.length < 5) {
+      System.out.println("Usage: ParallelEvaluator <mazes> <runs> <size> <loopy> <Controller> [Controller...]");
+      System.exit(1);
+    }
+
+    System.setProperty("java.awt.headless", "true");
+
+    int mazeCount = Integer.parseInt(args[0]);
+    int runs = Integer.parseInt(args[1]);
+    int size = Integer.parseInt(args[2]);
+    boolean loopy = Boolean.parseBoolean(args[3]);
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    SplittableRandom random = MazeRandom.root();
+    HeadlessGenerator generator = new HeadlessGenerator(size, size, loopy);
+    generator.setRandom(random.split());
+    ParallelEvaluator evaluator = new ParallelEvaluator(runs, 1000000, threads);
+    evaluator.setRandom(random.split());
+    for (int m = 0; m < mazeCount; m++)
+      evaluator.addMaze(generator.generateMaze());
+
+    System.out.println(mazeCount + " mazes x " + runs + " runs (" + (2*size+1) + "x" + (2*size+1) + (loopy ? " loopy" : "") + ") on " + threads + " threads");
+
+    //One controller at a time so each gets the whole pool and its own timing
+    for (int c = 4; c < args.length; c++) {
+      long start = System.nanoTime();
+      long polls = 0, steps = 0, collisions = 0;
+      int goals = 0, completed = 0, errors = 0;
+      for (BatchSimulator sim : evaluator.evaluate(Class.forName(args[c]))) {
+        polls += sim.getTotalPolls();
+        steps += sim.getTotalSteps();
+        collisions += sim.getTotalCollisions();
+        goals += sim.getGoalsReached();
+        completed += sim.getRunsCompleted();
+        errors += sim.getErrors();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.println(args[c] + ":");
+      System.out.println("  Goals reached: " + goals + "/" + completed + (errors > 0 ? " (" + errors + " errors)" : ""));
+      System.out.println("  Polls: " + polls + "  Steps: " + steps + "  Collisions: " + collisions);
+      System.out.println(String.format("  Time: %.2fs  Steps/s: %.0f", seconds, steps / seconds));
+    }
+
+    evaluator.shutdown();
+  }
+}
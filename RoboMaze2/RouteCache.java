@@ -0,0 +1,225 @@
+/*
+  RouteCache.java
+
+  PREAMBLE
+  Keeps the best route found through each maze in a file, so a controller that
+  meets a maze it (or any other instance, in this JVM or an earlier one) has solved
+  before can take the route straight away on run 0 instead of exploring again.
+  Mazes are told apart by hash(), a 64 bit content hash of the size, the start, the
+  finish and every tile, so the same maze generated again or loaded from a file is
+  found whatever object it is in.
+
+  The file is a 4 byte MAGIC followed by one record per stored route:
+    long mazeHash, int length, then length bytes each heading - IRobot.NORTH
+  Records are only ever appended. When the file is opened it is memory mapped and
+  indexed once, keeping the shortest route for each maze, so loading a big cache
+  doesnt copy the routes into the heap until they are asked for. Routes put() after
+  that are appended to the file and held in memory. A record cut short at the end
+  (eg. the JVM was killed while appending) is cut off the file when it is opened, so
+  the next record appended starts where it did.
+
+  Several JVMs can share one file. Opening and every append hold a FileLock on it,
+  and each append goes on the end of the file as it is at that moment, so appends
+  never overwrite each other. A cache only knows the routes that were in the file
+  when it was opened plus its own. Within one JVM use shared() (or one RouteCache
+  per file), as FileLock is held by the whole JVM and cant be taken twice.
+
+  It is switched off unless the robomaze.routeCache system property names a file,
+  since a controller that already knows the route on run 0 is no use for measuring
+  how well it explores:
+    java -Drobomaze.routeCache=routes.bin BatchSimulator ...
+  shared() then gives the one RouteCache for that file. All the methods are
+  synchronized so it can be used from ParallelEvaluator's threads.
+
+  A controller uses it by looking up get(hash(maze)) when it first meets a maze
+  and following the headings if there are any, and put()ting its route once it
+  has found one. The controllers in CourseworkFiles dont, as the GUI loads them
+  from that folder on their own with nothing but the jar, so only controllers
+  here can be given the cache.
+
+  java RouteCache <file> lists what is in a cache file.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RouteCache {
+  public static final String PROPERTY = "robomaze.routeCache";
+  private static final int MAGIC = 0x524D5243; //"RMRC"
+  private static final int RECORD_HEADER = 12;
+
+  private static RouteCache shared = null;
+  private static boolean sharedLoaded = false;
+
+  private final FileChannel channel;
+  private MappedByteBuffer mapped = null;
+  //Where in mapped the length of each mazes shortest route is
+  private final Map<Long, Integer> mappedRoutes = new HashMap<>();
+  private final Map<Long, int[]> addedRoutes = new HashMap<>();
+
+  public RouteCache (File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      FileLock lock = channel.lock();
+      try {
+        load(file);
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  //Index the routes in the file, called with the file locked
+  private void load (File file) throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      write(ByteBuffer.allocate(4).putInt(0, MAGIC), 0);
+      return;
+    }
+
+    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    if (size < 4 || mapped.getInt(0) != MAGIC)
+      throw new IOException(file + " is not a route cache");
+
+    int position = 4;
+    while (position + RECORD_HEADER <= size) {
+      long mazeHash = mapped.getLong(position);
+      int length = mapped.getInt(position + 8);
+      if (length < 0 || position + RECORD_HEADER + length > size)
+        break;
+
+      Integer existing = mappedRoutes.get(mazeHash);
+      if (existing == null || length < mapped.getInt(existing))
+        mappedRoutes.put(mazeHash, position + 8);
+      position += RECORD_HEADER + length;
+    }
+
+    //Drop a record cut short, so what is appended next isnt followed by the rest of it.
+    //Nothing past position in mapped is ever read.
+    if (position < size)
+      channel.truncate(position);
+  }
+
+  private void write (ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining())
+      position += channel.write(buffer, position);
+  }
+
+  //The cache named by the robomaze.routeCache property, or null if it isnt set or cant be opened
+  public static synchronized RouteCache shared () {
+    if (!sharedLoaded) {
+      sharedLoaded = true;
+      String name = System.getProperty(PROPERTY);
+      if (name != null) {
+        try {
+          shared = new RouteCache(new File(name));
+        } catch (IOException e) {
+          System.err.println("Route cache not used: " + e.getMessage());
+        }
+      }
+    }
+    return shared;
+  }
+
+  public static long hash (Maze maze) {
+    //64 bit FNV-1a over everything that decides the route
+    long h = 0xcbf29ce484222325L;
+    h = mix(h, maze.getWidth());
+    h = mix(h, maze.getHeight());
+    h = mix(h, maze.getStart().x);
+    h = mix(h, maze.getStart().y);
+    h = mix(h, maze.getFinish().x);
+    h = mix(h, maze.getFinish().y);
+    for (int x = 0; x < maze.getWidth(); x++)
+      for (int y = 0; y < maze.getHeight(); y++)
+        h = mix(h, maze.getCellType(x, y));
+    return h;
+  }
+
+  private static long mix (long h, int value) {
+    for (int i = 0; i < 4; i++) {
+      h ^= (value >>> (i*8)) & 0xff;
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  //The headings of the shortest route stored for the maze, or null if there isnt one
+  public synchronized int[] get (long mazeHash) {
+    int[] added = addedRoutes.get(mazeHash);
+    if (added != null)
+      return added.clone();
+
+    Integer position = mappedRoutes.get(mazeHash);
+    if (position == null)
+      return null;
+
+    int[] headings = new int[mapped.getInt(position)];
+    for (int i = 0; i < headings.length; i++)
+      headings[i] = mapped.get(position + 4 + i) + IRobot.NORTH;
+    return headings;
+  }
+
+  //Store the route if it is shorter than the one already stored for the maze
+  public synchronized void put (long mazeHash, int[] headings) {
+    int[] known = get(mazeHash);
+    if (known != null && known.length <= headings.length)
+      return;
+
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + headings.length);
+    record.putLong(mazeHash).putInt(headings.length);
+    for (int heading : headings)
+      record.put((byte) (heading - IRobot.NORTH));
+    record.flip();
+
+    //On the end of the file as it is now, another JVM may have appended since
+    try {
+      FileLock lock = channel.lock();
+      try {
+        write(record, channel.size());
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      System.err.println("Route not saved: " + e.getMessage());
+    }
+    addedRoutes.put(mazeHash, headings.clone());
+  }
+
+  public synchronized int size () {
+    int count = addedRoutes.size();
+    for (Long mazeHash : mappedRoutes.keySet())
+      if (!addedRoutes.containsKey(mazeHash))
+        count++;
+    return count;
+  }
+
+  public synchronized void close () throws IOException {
+    channel.close();
+  }
+
+  public static void main (String[] args) throws Exception {
+    if (args.length < 1) {
+      System.out.println("Usage: java RouteCache <file>");
+      return;
+    }
+
+    RouteCache cache = new RouteCache(new File(args[0]));
+    for (Long mazeHash : cache.mappedRoutes.keySet())
+      System.out.println(String.format("%016x %d", mazeHash, cache.get(mazeHash).length));
+    System.out.println(cache.size() + " routes");
+    cache.close();
+  }
+}
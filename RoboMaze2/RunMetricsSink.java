@@ -0,0 +1,135 @@
+/*
+  RunMetricsSink.java
+
+  PREAMBLE
+  Writes one line per finished run to a file while an evaluation is going, so long
+  runs of learning controllers (eg. GrandFinaleV3 over hundreds of runs) can be
+  watched with tail -f or loaded into a spreadsheet afterwards. Nothing is kept in
+  memory apart from the BufferedWriter's buffer, so it can be left on for as many
+  runs as needed.
+
+  Each line is comma separated:
+    controller,maze,run,goal,steps,collisions,wallNanos,allocatedBytes
+
+  allocatedBytes is how much the thread running the controller allocated during
+  the run, from com.sun.management.ThreadMXBean. It is -1 on JVMs without it, and
+  when the sink is fed from the EventBus (the reports come from a different thread
+  to the one running the controller, so there is nothing to measure).
+
+  BatchSimulator and ParallelEvaluator call record() directly. In the GUI the sink
+  can be added as an IEventClient instead, where it picks up ROBOT_REPORT events,
+  counts NEW_MAZE events for the maze number and takes the controller name from
+  CURRENT_CONTROLLER.
+
+  record() is synchronized so one sink can be shared between threads. The file is
+  flushed every FLUSH_EVERY records and on close().
+*/
+
+import uk.ac.warwick.dcs.maze.controllers.PolledControllerWrapper;
+import uk.ac.warwick.dcs.maze.logic.IEvent;
+import uk.ac.warwick.dcs.maze.logic.IEventClient;
+import uk.ac.warwick.dcs.maze.logic.IRobotReport;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+public class RunMetricsSink implements IEventClient {
+  public static final String HEADER = "controller,maze,run,goal,steps,collisions,wallNanos,allocatedBytes";
+  private static final int FLUSH_EVERY = 64;
+
+  private static com.sun.management.ThreadMXBean threadBean = null;
+
+  static {
+    try {
+      threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      if (threadBean.isThreadAllocatedMemorySupported())
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+      else
+        threadBean = null;
+    } catch (Throwable t) {
+      threadBean = null;
+    }
+  }
+
+  private final BufferedWriter out;
+  private int unflushed = 0;
+
+  //Only used when fed from the EventBus
+  private String controllerName = "unknown";
+  private int mazeId = 0;
+  private long lastReport = System.nanoTime();
+
+  public RunMetricsSink (File file, boolean append) throws IOException {
+    boolean writeHeader = !append || !file.exists() || file.length() == 0;
+    out = new BufferedWriter(new FileWriter(file, append));
+    if (writeHeader) {
+      out.write(HEADER);
+      out.newLine();
+    }
+  }
+
+  //Bytes allocated by the current thread so far, or -1 if the JVM cant say
+  public static long threadAllocatedBytes () {
+    if (threadBean == null)
+      return -1;
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public synchronized void record (String controller, int maze, int run, boolean goal, long steps, long collisions, long wallNanos, long allocatedBytes) {
+    try {
+      out.write(controller);
+      out.write(',');
+      out.write(Integer.toString(maze));
+      out.write(',');
+      out.write(Integer.toString(run));
+      out.write(',');
+      out.write(goal ? '1' : '0');
+      out.write(',');
+      out.write(Long.toString(steps));
+      out.write(',');
+      out.write(Long.toString(collisions));
+      out.write(',');
+      out.write(Long.toString(wallNanos));
+      out.write(',');
+      out.write(Long.toString(allocatedBytes));
+      out.newLine();
+
+      if (++unflushed >= FLUSH_EVERY) {
+        out.flush();
+        unflushed = 0;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  public void notify (IEvent event) {
+    switch (event.getMessage()) {
+      case IEvent.ROBOT_REPORT:
+        IRobotReport report = (IRobotReport) event.getData();
+        long now = System.nanoTime();
+        record(controllerName, mazeId, report.getRunNumber(), report.goalReached(), report.getSteps(), report.getCollisions(), now - lastReport, -1);
+        lastReport = now;
+        break;
+      case IEvent.NEW_MAZE:
+        mazeId++;
+        lastReport = System.nanoTime();
+        break;
+      case IEvent.CURRENT_CONTROLLER:
+        Object controller = event.getData();
+        if (controller instanceof PolledControllerWrapper)
+          controller = ((PolledControllerWrapper) controller).getControlObject();
+        else if (controller instanceof BoundControllerWrapper)
+          controller = ((BoundControllerWrapper) controller).getControlObject();
+        if (controller != null)
+          controllerName = controller.getClass().getName();
+        break;
+    }
+  }
+
+  public synchronized void close () throws IOException {
+    out.close();
+  }
+}
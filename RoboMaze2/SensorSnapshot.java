@@ -0,0 +1,117 @@
+/*
+  SensorSnapshot.java
+
+  PREAMBLE
+  What is around the robot at the start of a poll, read once. The explore and
+  backtrack controllers (Ex1-Ex3, Explorer, GrandFinaleV3, GrandFinaleV4) each ask
+  nonwallExits(), then passageExits(), then junctionControl() about the same 4
+  tiles, every one of them calling robot.look() in all 4 directions, which is up
+  to 16 looks a poll (and every RobotImpl.look() makes 4 Points).
+
+  A controller keeps one SensorSnapshot and calls update() at the start of each
+  poll, after anything that turns the robot (eg. setHeading(IRobot.SOUTH) on the
+  first poll). That is one lookAll() on an IFastRobot or 4 look() calls on
+  anything else. After that, until the robot turns:
+    - look() gives the same IRobot.WALL/PASSAGE/BEENBEFORE a robot.look() would
+    - nonwallExits(), passageExits(), beenbeforeExits() are counts and
+    getWallMask() etc. are the same as bits, bit (direction - AHEAD) for each
+    direction that has that tile type
+    - toHeading() and toDirection() convert between directions and headings with
+    a table filled in by update(), rather than the mod 4 sums each time
+
+  The tiles are kept packed by direction, 2 bits each in the IFastRobot LOOK_
+  codes with AHEAD in bits 0-1, RIGHT 2-3, BEHIND 4-5 and LEFT 6-7. Nothing is
+  allocated after the snapshot is made.
+*/
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+
+public class SensorSnapshot {
+  private int packed = 0;
+  private int wallMask = 0;
+  private int passageMask = 0;
+  private int beenbeforeMask = 0;
+  private final int[] headings = new int[4];
+  private final int[] directions = new int[4];
+
+  public void update (IRobot robot) {
+    int offset = robot.getHeading() - IRobot.NORTH;
+
+    if (robot instanceof IFastRobot) {
+      //lookAll() is packed by heading, so rotate it round until AHEAD is in bits 0-1
+      int byHeading = ((IFastRobot) robot).lookAll();
+      packed = ((byHeading | byHeading << 8) >>> (offset << 1)) & 0xff;
+    } else {
+      packed = 0;
+      for (int i = 0; i < 4; i++)
+        packed |= lookCode(robot.look(IRobot.AHEAD + i)) << (i << 1);
+    }
+
+    wallMask = 0;
+    passageMask = 0;
+    beenbeforeMask = 0;
+    for (int i = 0; i < 4; i++) {
+      switch ((packed >>> (i << 1)) & 3) {
+        case IFastRobot.LOOK_PASSAGE: passageMask |= 1 << i;
+          break;
+        case IFastRobot.LOOK_BEENBEFORE: beenbeforeMask |= 1 << i;
+          break;
+        default: wallMask |= 1 << i;
+          break;
+      }
+
+      headings[i] = (offset + i) % 4 + IRobot.NORTH;
+      directions[headings[i] - IRobot.NORTH] = i + IRobot.AHEAD;
+    }
+  }
+
+  public int look (int direction) {
+    return IFastRobot.cellType(packed, direction - IRobot.AHEAD + IRobot.NORTH);
+  }
+
+  public int nonwallExits () {
+    return 4 - Integer.bitCount(wallMask);
+  }
+
+  public int passageExits () {
+    return Integer.bitCount(passageMask);
+  }
+
+  public int beenbeforeExits () {
+    return Integer.bitCount(beenbeforeMask);
+  }
+
+  public int getWallMask () {
+    return wallMask;
+  }
+
+  public int getPassageMask () {
+    return passageMask;
+  }
+
+  public int getBeenbeforeMask () {
+    return beenbeforeMask;
+  }
+
+  public int getPacked () {
+    return packed;
+  }
+
+  //The heading the given direction was in when the snapshot was taken
+  public int toHeading (int direction) {
+    return headings[direction - IRobot.AHEAD];
+  }
+
+  //The direction the given heading was in when the snapshot was taken
+  public int toDirection (int heading) {
+    return directions[heading - IRobot.NORTH];
+  }
+
+  private static int lookCode (int cellType) {
+    switch (cellType) {
+      case IRobot.PASSAGE: return IFastRobot.LOOK_PASSAGE;
+      case IRobot.BEENBEFORE: return IFastRobot.LOOK_BEENBEFORE;
+      default: return IFastRobot.LOOK_WALL;
+    }
+  }
+}
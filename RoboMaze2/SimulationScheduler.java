@@ -0,0 +1,213 @@
+/*
+  SimulationScheduler.java
+
+  PREAMBLE
+  Starts controllers running the same way MazeLogic.startController() does, but
+  on virtual threads where the JVM has them. MazeLogic makes a new ControllerThread
+  (a normal platform thread) every time a controller is started, and the delay
+  between polls is a Thread.sleep() in robot.sleep(), so every simulation running at
+  once holds a whole OS thread that spends nearly all of its time asleep. A virtual
+  thread asleep in Thread.sleep() holds no OS thread at all, so thousands of slow
+  GUI paced simulations and big background runs can go at the same time in one JVM.
+
+  Virtual threads came in with Java 21 and this folder is built with older JDKs,
+  so Thread.ofVirtual() is looked up by reflection once. Without it each
+  simulation gets a daemon platform thread instead, which works the same just
+  without the saving.
+
+  Each simulation is a Simulation handle with its own delay, pause(), resume() and
+  stop(). The controller is run through a BoundControllerWrapper, which does the
+  pausing. When a run finishes a ROBOT_FINISHED event is sent like ControllerThread
+  does, either on the simulation's ConcurrentEventBus or, without one, on the jar's
+  EventBus so the GUI sees it. Each simulation's thread gets a MazeRandom
+  generator split off the one of the thread that made the Simulation.
+
+  MazeLogic and ControllerThread themselves are in maze-environment.jar, so they
+  are left as they are and this sits alongside them.
+
+  Usage (runs lots of paced simulations at once and reports how long they took):
+    java -cp maze-environment.jar:. SimulationScheduler <Controller> [simulations] [size] [delay|turbo] [runs]
+*/
+
+import uk.ac.warwick.dcs.maze.logic.Event;
+import uk.ac.warwick.dcs.maze.logic.EventBus;
+import uk.ac.warwick.dcs.maze.logic.IEvent;
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class SimulationScheduler {
+  private static Object virtualBuilder = null;
+  private static Method unstarted = null;
+
+  static {
+    //Thread.ofVirtual().unstarted(Runnable) if this JVM has it
+    try {
+      virtualBuilder = Thread.class.getMethod("ofVirtual").invoke(null);
+      unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+    } catch (Exception e) {
+      virtualBuilder = null;
+      unstarted = null;
+    }
+  }
+
+  public static boolean hasVirtualThreads () {
+    return virtualBuilder != null;
+  }
+
+  public static Thread newThread (Runnable task, String name) {
+    Thread thread = null;
+    if (virtualBuilder != null) {
+      try {
+        thread = (Thread) unstarted.invoke(virtualBuilder, task);
+      } catch (Exception e) {
+        thread = null;
+      }
+    }
+
+    if (thread == null) {
+      thread = new Thread(task);
+      thread.setDaemon(true);
+    }
+    thread.setName(name);
+    return thread;
+  }
+
+  public Simulation start (Object controller, IRobot robot, int delay, int runs, ConcurrentEventBus eventBus) {
+    Simulation sim = new Simulation(controller, robot, delay, runs, eventBus);
+    sim.start();
+    return sim;
+  }
+
+  public static class Simulation implements Runnable {
+    private final BoundControllerWrapper wrapper;
+    private final IRobot robot;
+    private final int runs;
+    private final ConcurrentEventBus eventBus;
+    private final Thread thread;
+    private final SplittableRandom random;
+    private volatile int runsCompleted = 0;
+    private volatile long steps = 0;
+
+    public Simulation (Object controller, IRobot robot, int delay, int runs, ConcurrentEventBus eventBus) {
+      this.robot = robot;
+      this.runs = runs;
+      this.eventBus = eventBus;
+      wrapper = new BoundControllerWrapper(controller);
+      wrapper.setRobot(robot);
+      wrapper.setDelay(delay);
+      random = MazeRandom.get().split();
+      thread = newThread(this, "Simulation of " + controller.getClass().getName());
+    }
+
+    public void start () {
+      thread.start();
+    }
+
+    public void run () {
+      MazeRandom.set(random);
+      for (int run = 0; run < runs && !wrapper.isStopped(); run++) {
+        wrapper.start();
+
+        //A HeadlessRobot is put back at the start here, RobotImpl is reset by the GUI
+        if (robot instanceof HeadlessRobot)
+          steps += ((HeadlessRobot) robot).reset().getSteps();
+        runsCompleted++;
+
+        Event finished = new Event(IEvent.ROBOT_FINISHED, null);
+        if (eventBus != null)
+          eventBus.broadcast(finished);
+        else
+          EventBus.broadcast(finished);
+      }
+    }
+
+    public void setDelay (int delay) {
+      wrapper.setDelay(delay);
+    }
+
+    public int getDelay () {
+      return wrapper.getDelay();
+    }
+
+    //Only takes effect from the next run
+    public void setTurbo (boolean turbo) {
+      wrapper.setTurbo(turbo);
+    }
+
+    public void pause () {
+      wrapper.pause();
+    }
+
+    public void resume () {
+      wrapper.resume();
+    }
+
+    public boolean isPaused () {
+      return wrapper.isPaused();
+    }
+
+    public void stop () {
+      wrapper.stop();
+    }
+
+    public boolean isRunning () {
+      return thread.isAlive();
+    }
+
+    public int getRunsCompleted () {
+      return runsCompleted;
+    }
+
+    //Only counted for a HeadlessRobot
+    public long getSteps () {
+      return steps;
+    }
+
+    public void join () throws InterruptedException {
+      thread.join();
+    }
+  }
+
+  public static void main (String[] args) throws Exception {
+    if (args.length < 1) {
+      System.out.println("Usage: SimulationScheduler <Controller> [simulations] [size] [delay|turbo] [runs]");
+      System.exit(1);
+    }
+
+    System.setProperty("java.awt.headless", "true");
+
+    Class<?> controllerClass = Class.forName(args[0]);
+    int count = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int size = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+    boolean turbo = args.length > 3 && args[3].equals("turbo");
+    int delay = args.length > 3 && !turbo ? Integer.parseInt(args[3]) : 10;
+    int runs = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+    HeadlessGenerator generator = new HeadlessGenerator(size, size, false);
+    List<Simulation> sims = new ArrayList<>(count);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      HeadlessRobot robot = new HeadlessRobot(generator.generateMaze());
+      Simulation sim = new Simulation(controllerClass.getDeclaredConstructor().newInstance(), robot, delay, runs, null);
+      sim.setTurbo(turbo);
+      sim.start();
+      sims.add(sim);
+    }
+
+    int completed = 0;
+    long steps = 0;
+    for (Simulation sim : sims) {
+      sim.join();
+      completed += sim.getRunsCompleted();
+      steps += sim.getSteps();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.println(count + " simulations of " + args[0] + " (" + (turbo ? "turbo" : delay + "ms delay") + ") on " + (hasVirtualThreads() ? "virtual" : "platform") + " threads");
+    System.out.println(String.format("  Runs completed: %d  Time: %.2fs  Steps/s: %.0f", completed, seconds, steps / seconds));
+  }
+}
@@ -0,0 +1,44 @@
+/*
+  VisitedTracker.java
+
+  PREAMBLE
+  Keeps track of which tiles the robot has been on (the BEENBEFORE tiles) as one
+  bit per tile in a long[], rather than the boolean[][] RobotImpl uses which costs
+  a byte per tile and an extra array per column.
+*/
+
+import java.util.Arrays;
+
+public class VisitedTracker {
+  private final int width;
+  private final int height;
+  private final long[] visited;
+
+  public VisitedTracker (int width, int height) {
+    this.width = width;
+    this.height = height;
+    visited = new long[(int) (((long) width * height + 63) >>> 6)];
+  }
+
+  public boolean isVisited (int x, int y) {
+    long index = (long) x * height + y;
+    return (visited[(int) (index >>> 6)] & (1L << index)) != 0;
+  }
+
+  public void visit (int x, int y) {
+    long index = (long) x * height + y;
+    visited[(int) (index >>> 6)] |= 1L << index;
+  }
+
+  public void clear () {
+    Arrays.fill(visited, 0L);
+  }
+
+  public int getWidth () {
+    return width;
+  }
+
+  public int getHeight () {
+    return height;
+  }
+}
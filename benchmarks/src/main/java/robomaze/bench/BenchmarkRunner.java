@@ -0,0 +1,26 @@
+/*
+  BenchmarkRunner.java
+
+  PREAMBLE
+  Runs the benchmarks with the gc profiler always on, so every result comes with
+  an allocation rate (gc.alloc.rate.norm is bytes per operation) as well as the
+  time. Anything on the command line is passed to JMH as normal.
+*/
+
+package robomaze.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+  public static void main (String[] args) throws Exception {
+    Options options = new OptionsBuilder()
+      .parent(new CommandLineOptions(args))
+      .addProfiler(GCProfiler.class)
+      .build();
+    new Runner(options).run();
+  }
+}
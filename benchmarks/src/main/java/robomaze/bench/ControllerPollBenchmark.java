@@ -0,0 +1,126 @@
+/*
+  ControllerPollBenchmark.java
+
+  PREAMBLE
+  The cost of one poll of a controller: controlRobot() followed by the robot's
+  advance(), on a HeadlessRobot so the time is the controller's and not the
+  EventBus's. When the robot gets to the target it is reset (and so is the
+  controller, if it has reset()) and carries on, so the number covers whole runs
+  including the learning runs and the fast runs after them.
+
+  A controller that throws just has that poll counted and carries on, and a run
+  that goes on for MAX_POLLS polls is reset, so a controller that gets stuck
+  still gets a number.
+
+  The RoboMaze1 controllers are the "RoboMaze1/..." ones and the RoboMaze2
+  coursework ones the "CourseworkFiles/..." ones (see Mazes). The RoboMaze1 ones
+  print on every poll (Ex1, Ex2) or every run (the ControlTest table from Ex3 and
+  Broken), so System.out is swapped for a stream that throws the output away while
+  they are measured. The time then covers making the text but not the console.
+*/
+
+package robomaze.bench;
+
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ControllerPollBenchmark {
+  private static final int MAX_POLLS = 100000;
+
+  @Param({"RoboMaze1/DumboController", "RoboMaze1/Ex1", "RoboMaze1/Ex2", "RoboMaze1/Ex3", "RoboMaze1/Broken",
+          "CourseworkFiles/Ex3", "CourseworkFiles/GrandFinaleV1", "CourseworkFiles/GrandFinale",
+          "Explorer", "GrandFinaleV2", "GrandFinaleV3", "GrandFinaleV4", "GrandFinaleDStar", "GrandFinaleGraph"})
+  public String controller;
+
+  @Param({"15", "50"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean loopy;
+
+  private IRobot robot;
+  private MethodHandle controlRobot;
+  private MethodHandle controllerReset;
+  private MethodHandle advance;
+  private MethodHandle atTarget;
+  private MethodHandle robotReset;
+  private int polls;
+  private PrintStream out = null;
+
+  @Setup
+  public void setup () throws Exception {
+    Object generator = Mazes.headlessGenerator(size, loopy);
+    Maze maze = (Maze) generator.getClass().getMethod("generateMaze").invoke(generator);
+    robot = Mazes.headlessRobot(maze);
+
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    Object instance = Mazes.controller(controller);
+    Method control = instance.getClass().getMethod("controlRobot", IRobot.class);
+    controlRobot = lookup.unreflect(control).bindTo(instance).asType(MethodType.methodType(void.class, IRobot.class));
+    try {
+      controllerReset = lookup.unreflect(instance.getClass().getMethod("reset")).bindTo(instance).asType(MethodType.methodType(void.class));
+    } catch (NoSuchMethodException e) {
+      controllerReset = null;
+    }
+
+    Class<?> robotClass = robot.getClass();
+    advance = lookup.unreflect(robotClass.getMethod("advance")).bindTo(robot).asType(MethodType.methodType(void.class));
+    atTarget = lookup.unreflect(robotClass.getMethod("atTarget")).bindTo(robot).asType(MethodType.methodType(boolean.class));
+    robotReset = lookup.unreflect(robotClass.getMethod("reset")).bindTo(robot).asType(MethodType.methodType(void.class));
+    polls = 0;
+
+    if (controller.startsWith(Mazes.ROBOMAZE1)) {
+      out = System.out;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+  }
+
+  @TearDown
+  public void tearDown () {
+    if (out != null)
+      System.setOut(out);
+    out = null;
+  }
+
+  @Benchmark
+  public void poll () throws Throwable {
+    try {
+      controlRobot.invokeExact(robot);
+      advance.invokeExact();
+    } catch (RuntimeException e) {
+      //Counted as a poll like in BatchSimulator
+    }
+
+    if ((boolean) atTarget.invokeExact() || ++polls >= MAX_POLLS) {
+      if (controllerReset != null)
+        controllerReset.invokeExact();
+      robotReset.invokeExact();
+      polls = 0;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+  GeneratorBenchmark.java
+
+  PREAMBLE
+  How long it takes to make one maze, by size, for the GUI's PrimGenerator and
+  LoopyGenerator and for HeadlessGenerator doing the same two kinds of maze. size
+  is the number of cells across, the same as the GUI setting, so the maze itself
+  is 2*size+1 tiles across.
+*/
+
+package robomaze.bench;
+
+import uk.ac.warwick.dcs.maze.logic.IMazeGenerator;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GeneratorBenchmark {
+  @Param({"10", "50", "100", "200"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean loopy;
+
+  private IMazeGenerator guiGenerator;
+  private MethodHandle headlessGenerate;
+
+  @Setup
+  public void setup () throws Exception {
+    guiGenerator = Mazes.jarGenerator(size, loopy);
+    Object headless = Mazes.headlessGenerator(size, loopy);
+    headlessGenerate = MethodHandles.publicLookup()
+      .unreflect(headless.getClass().getMethod("generateMaze"))
+      .bindTo(headless)
+      .asType(MethodType.methodType(Maze.class));
+  }
+
+  @Benchmark
+  public Maze guiGenerator () {
+    return guiGenerator.generateMaze();
+  }
+
+  @Benchmark
+  public Maze headlessGenerator () throws Throwable {
+    return (Maze) headlessGenerate.invokeExact();
+  }
+}
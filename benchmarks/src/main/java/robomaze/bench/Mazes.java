@@ -0,0 +1,101 @@
+/*
+  Mazes.java
+
+  PREAMBLE
+  Setup code shared by the benchmarks. The controllers, HeadlessRobot and
+  HeadlessGenerator are all in the default package, which a class in a package
+  cannot name, so they are made by reflection here. Only setup goes through
+  reflection, the measured code uses IRobot or a MethodHandle.
+
+  A controller named "RoboMaze1/<Controller>" is one from RoboMaze1, which the pom
+  compiles into robomaze1/ inside the classes, and "CourseworkFiles/<Controller>"
+  one from RoboMaze2/CourseworkFiles, compiled into courseworkfiles/. Each folder
+  has a FolderLoader, which looks in the folder before asking the normal class
+  loader, so RoboMaze1's Ex3 (and the MazeRandom, HeadingMask etc. it uses) is used
+  rather than the one in CourseworkFiles with the same name, and the CourseworkFiles
+  controllers use their own MazeRandom and SensorSnapshot rather than RoboMaze2's.
+  The jar's classes still come from the normal loader, so the controller works
+  with the same IRobot as everything else.
+*/
+
+package robomaze.bench;
+
+import uk.ac.warwick.dcs.maze.generators.LoopyGenerator;
+import uk.ac.warwick.dcs.maze.generators.PrimGenerator;
+import uk.ac.warwick.dcs.maze.logic.IMazeGenerator;
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+
+final class Mazes {
+  static final String ROBOMAZE1 = "RoboMaze1/";
+  static final String COURSEWORK = "CourseworkFiles/";
+
+  private static final FolderLoader robomaze1 = new FolderLoader("robomaze1/");
+  private static final FolderLoader coursework = new FolderLoader("courseworkfiles/");
+
+  private Mazes () {
+  }
+
+  //The GUI generators only have their size set from the config panel
+  static IMazeGenerator jarGenerator (int size, boolean loopy) throws Exception {
+    PrimGenerator generator = loopy ? new LoopyGenerator() : new PrimGenerator();
+    Field width = PrimGenerator.class.getDeclaredField("mazeWidth");
+    Field height = PrimGenerator.class.getDeclaredField("mazeHeight");
+    width.setAccessible(true);
+    height.setAccessible(true);
+    width.setInt(generator, size);
+    height.setInt(generator, size);
+    return generator;
+  }
+
+  static Object headlessGenerator (int size, boolean loopy) throws Exception {
+    return Class.forName("HeadlessGenerator").getConstructor(int.class, int.class, boolean.class).newInstance(size, size, loopy);
+  }
+
+  static IRobot headlessRobot (Maze maze) throws Exception {
+    return (IRobot) Class.forName("HeadlessRobot").getConstructor(Maze.class).newInstance(maze);
+  }
+
+  static Object controller (String name) throws Exception {
+    Class<?> type;
+    if (name.startsWith(ROBOMAZE1))
+      type = robomaze1.loadClass(name.substring(ROBOMAZE1.length()));
+    else if (name.startsWith(COURSEWORK))
+      type = coursework.loadClass(name.substring(COURSEWORK.length()));
+    else
+      type = Class.forName(name);
+    return type.getDeclaredConstructor().newInstance();
+  }
+
+  private static final class FolderLoader extends ClassLoader {
+    private final String folder;
+
+    FolderLoader (String folder) {
+      super(Mazes.class.getClassLoader());
+      this.folder = folder;
+    }
+
+    @Override
+    protected Class<?> loadClass (String name, boolean resolve) throws ClassNotFoundException {
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> type = findLoadedClass(name);
+        if (type == null) {
+          try (InputStream in = getParent().getResourceAsStream(folder + name.replace('.', '/') + ".class")) {
+            if (in == null)
+              return super.loadClass(name, resolve);
+            byte[] bytes = in.readAllBytes();
+            type = defineClass(name, bytes, 0, bytes.length);
+          } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+          }
+        }
+        if (resolve)
+          resolveClass(type);
+        return type;
+      }
+    }
+  }
+}
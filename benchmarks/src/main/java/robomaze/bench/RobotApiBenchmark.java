@@ -0,0 +1,90 @@
+/*
+  RobotApiBenchmark.java
+
+  PREAMBLE
+  Throughput of the sensing and turning calls every controller makes on every poll,
+  for the jar's RobotImpl and for HeadlessRobot. Each call looks or faces in the
+  next of the four directions in turn, so the result isnt just one branch.
+
+  look() never touches the EventBus, but RobotImpl.face() does for three calls in
+  four: facing LEFT, RIGHT or BEHIND goes through setHeading(), which boxes the new
+  heading in an Integer and sends a ROBOT_HEADING_CHANGED event through the synchronized
+  static EventBus.broadcast() (only AHEAD leaves the heading alone). Every RobotImpl
+  is a client of the bus from when it is made, so the event is also handed back to
+  the robot's own notify(). RobotImplNoClients takes the robot off the bus again,
+  so face() still boxes and locks but has no one to send to; the difference between
+  the two RobotImpl face() results is the cost of the clients, and the difference
+  from HeadlessRobot (which never broadcasts) is the cost of the bus itself.
+*/
+
+package robomaze.bench;
+
+import uk.ac.warwick.dcs.maze.logic.EventBus;
+import uk.ac.warwick.dcs.maze.logic.IRobot;
+import uk.ac.warwick.dcs.maze.logic.Maze;
+import uk.ac.warwick.dcs.maze.logic.RobotImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RobotApiBenchmark {
+  private static final int[] DIRECTIONS = {IRobot.AHEAD, IRobot.RIGHT, IRobot.BEHIND, IRobot.LEFT};
+
+  @Param({"RobotImpl", "RobotImplNoClients", "HeadlessRobot"})
+  public String robotType;
+
+  private IRobot robot;
+  private RobotImpl impl = null;
+  private int next = 0;
+
+  @Setup
+  public void setup () throws Exception {
+    Maze maze = Mazes.jarGenerator(25, false).generateMaze();
+    if (robotType.startsWith("RobotImpl")) {
+      impl = new RobotImpl();
+      impl.setMaze(maze);
+      if (robotType.equals("RobotImplNoClients"))
+        EventBus.removeClient(impl);
+      robot = impl;
+    } else
+      robot = Mazes.headlessRobot(maze);
+  }
+
+  //Take the robot off the bus so it isnt sent the events of the next trial's robot
+  @TearDown
+  public void tearDown () {
+    if (impl != null)
+      EventBus.removeClient(impl);
+  }
+
+  @Benchmark
+  public int look () {
+    return robot.look(DIRECTIONS[next++ & 3]);
+  }
+
+  @Benchmark
+  public void face () {
+    robot.face(DIRECTIONS[next++ & 3]);
+  }
+
+  @Benchmark
+  public int lookAround () {
+    return robot.look(IRobot.AHEAD) + robot.look(IRobot.RIGHT) + robot.look(IRobot.BEHIND) + robot.look(IRobot.LEFT);
+  }
+}